@@ -0,0 +1,95 @@
+package com.blockoutlines.bench;
+
+import com.blockoutlines.target.BlockFilter;
+import com.blockoutlines.target.OutlineTarget;
+import com.blockoutlines.target.TargetMatcher;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The per-block "is this a target" test: the compiled matcher by state and by raw id against
+// evaluating the filters themselves, which is what the scan did before targets were compiled
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatchBenchmark {
+    private static final int STATES = 4096;
+
+    private BlockState[] states;
+    private int[] rawIds;
+    private List<OutlineTarget> targets;
+    private TargetMatcher matcher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticWorld.bootstrap();
+        targets = List.of(
+            new OutlineTarget(BlockFilter.family(Blocks.DIAMOND_ORE), 0xFFFFFF),
+            new OutlineTarget(BlockFilter.family(Blocks.ANCIENT_DEBRIS), 0xFF8800),
+            // Tags are not bound without a server, so no tag filter here
+            new OutlineTarget(BlockFilter.of(Blocks.OAK_LOG), 0x00FF00)
+        );
+        matcher = new TargetMatcher(targets);
+
+        Random random = new Random(42L);
+        states = new BlockState[STATES];
+        rawIds = new int[STATES];
+        for (int i = 0; i < STATES; i++) {
+            int id = random.nextInt(Block.STATE_IDS.size());
+            states[i] = Block.STATE_IDS.get(id);
+            rawIds[i] = id;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATES)
+    public int matcherByState() {
+        int found = 0;
+        for (BlockState state : states) {
+            if (matcher.targetOf(state) != TargetMatcher.NO_TARGET) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATES)
+    public int matcherByRawId() {
+        int found = 0;
+        for (int rawId : rawIds) {
+            if (matcher.targetOfRawId(rawId) != TargetMatcher.NO_TARGET) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATES)
+    public int filters() {
+        int found = 0;
+        for (BlockState state : states) {
+            for (OutlineTarget target : targets) {
+                if (target.filter().test(state)) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+}
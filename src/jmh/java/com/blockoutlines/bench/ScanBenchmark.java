@@ -0,0 +1,64 @@
+package com.blockoutlines.bench;
+
+import com.blockoutlines.scan.ScanStats;
+import com.blockoutlines.scan.SectionScanner;
+import com.blockoutlines.scan.SectionScanner.CapturedSection;
+import com.blockoutlines.target.BlockFilter;
+import com.blockoutlines.target.OutlineTarget;
+import com.blockoutlines.target.TargetMatcher;
+import com.blockoutlines.tracking.SectionBitStore;
+import net.minecraft.block.Blocks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The worker half of a full scan: walking captured sections into per-target masks. Sparse
+// matches diamond ore (about one block in a thousand), dense matches stone and deepslate,
+// which is nearly every block.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScanBenchmark {
+    @Param({"8", "32", "64"})
+    public int radius;
+
+    @Param({"sparse", "dense"})
+    public String targets;
+
+    private List<CapturedSection> sections;
+    private TargetMatcher matcher;
+    private final SectionScanner scanner = new SectionScanner();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sections = SyntheticWorld.sections(radius, 42L);
+        OutlineTarget target = targets.equals("sparse")
+            ? new OutlineTarget(BlockFilter.family(Blocks.DIAMOND_ORE), 0xFFFFFF)
+            : new OutlineTarget(BlockFilter.family(Blocks.STONE), 0xFFFFFF);
+        OutlineTarget deepslate = new OutlineTarget(BlockFilter.of(Blocks.DEEPSLATE), 0xFFFFFF);
+        matcher = new TargetMatcher(targets.equals("sparse") ? List.of(target) : List.of(target, deepslate));
+    }
+
+    @Benchmark
+    public int scan() {
+        SectionBitStore[] out = new SectionBitStore[matcher.getTargetCount()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = new SectionBitStore();
+        }
+        scanner.scan(sections, matcher, new ScanStats(), out, () -> false);
+        int found = 0;
+        for (SectionBitStore store : out) {
+            found += store.size();
+        }
+        return found;
+    }
+}
@@ -0,0 +1,80 @@
+package com.blockoutlines.bench;
+
+import com.blockoutlines.scan.SectionScanner.CapturedSection;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.PalettedContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Chunk sections built in memory, standing in for a loaded world so benchmarks run without a
+// game client. Terrain is stone over deepslate with diamond ore scattered at a fixed density.
+public final class SyntheticWorld {
+    // Roughly what a real ore layer looks like: one ore block in a thousand
+    public static final double ORE_DENSITY = 0.001;
+
+    private static boolean bootstrapped;
+
+    private SyntheticWorld() {}
+
+    // Registries and block states have to exist before any BlockState is touched
+    public static synchronized void bootstrap() {
+        if (!bootstrapped) {
+            SharedConstants.createGameVersion();
+            Bootstrap.initialize();
+            bootstrapped = true;
+        }
+    }
+
+    // The sections covering the cube of the given radius around the origin, clipped the same
+    // way CaptureCursor.advance clips them
+    public static List<CapturedSection> sections(int radius, long seed) {
+        bootstrap();
+        Random random = new Random(seed);
+        List<CapturedSection> sections = new ArrayList<>();
+        int minSection = ChunkSectionPos.getSectionCoord(-radius);
+        int maxSection = ChunkSectionPos.getSectionCoord(radius);
+        for (int sx = minSection; sx <= maxSection; sx++) {
+            for (int sy = minSection; sy <= maxSection; sy++) {
+                for (int sz = minSection; sz <= maxSection; sz++) {
+                    int baseX = ChunkSectionPos.getBlockCoord(sx);
+                    int baseY = ChunkSectionPos.getBlockCoord(sy);
+                    int baseZ = ChunkSectionPos.getBlockCoord(sz);
+                    sections.add(new CapturedSection(
+                        baseX, baseY, baseZ,
+                        section(sy < 0, random),
+                        Math.max(-radius - baseX, 0), Math.max(-radius - baseY, 0), Math.max(-radius - baseZ, 0),
+                        Math.min(radius - baseX, 15), Math.min(radius - baseY, 15), Math.min(radius - baseZ, 15)
+                    ));
+                }
+            }
+        }
+        return sections;
+    }
+
+    private static PalettedContainer<BlockState> section(boolean deep, Random random) {
+        BlockState host = deep ? Blocks.DEEPSLATE.getDefaultState() : Blocks.STONE.getDefaultState();
+        BlockState ore = deep ? Blocks.DEEPSLATE_DIAMOND_ORE.getDefaultState() : Blocks.DIAMOND_ORE.getDefaultState();
+        PalettedContainer<BlockState> container = new PalettedContainer<>(
+            Block.STATE_IDS, host, PalettedContainer.PaletteProvider.BLOCK_STATE);
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    if (random.nextDouble() < ORE_DENSITY) {
+                        container.set(x, y, z, ore);
+                    } else if (random.nextInt(64) == 0) {
+                        // Some air pockets so the palette is not trivially small
+                        container.set(x, y, z, Blocks.CAVE_AIR.getDefaultState());
+                    }
+                }
+            }
+        }
+        return container;
+    }
+}
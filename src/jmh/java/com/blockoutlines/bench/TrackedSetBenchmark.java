@@ -0,0 +1,89 @@
+package com.blockoutlines.bench;
+
+import com.blockoutlines.tracking.SectionBitStore;
+import com.blockoutlines.tracking.TrackedLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Tracked set operations on positions spread over a 129^3 scan box. The snapshot benchmark is
+// what replaced copying the whole position set for the renderer: publishing a snapshot after
+// a single block change.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrackedSetBenchmark {
+    private static final int RADIUS = 64;
+
+    @Param({"1000", "100000"})
+    public int positions;
+
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private SectionBitStore store;
+    private SectionBitStore changed;
+    private int toggle;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42L);
+        xs = new int[positions];
+        ys = new int[positions];
+        zs = new int[positions];
+        store = new SectionBitStore();
+        for (int i = 0; i < positions; i++) {
+            xs[i] = random.nextInt(2 * RADIUS + 1) - RADIUS;
+            ys[i] = random.nextInt(2 * RADIUS + 1) - RADIUS;
+            zs[i] = random.nextInt(2 * RADIUS + 1) - RADIUS;
+            store.add(xs[i], ys[i], zs[i]);
+        }
+
+        // One percent of the positions moved, like a rescan after some mining
+        changed = store.copy();
+        for (int i = 0; i < positions / 100; i++) {
+            changed.remove(xs[i], ys[i], zs[i]);
+            changed.add(xs[i] + 1, ys[i], zs[i]);
+        }
+    }
+
+    @Benchmark
+    public int insert() {
+        SectionBitStore fresh = new SectionBitStore();
+        for (int i = 0; i < positions; i++) {
+            fresh.add(xs[i], ys[i], zs[i]);
+        }
+        return fresh.size();
+    }
+
+    @Benchmark
+    public int diff() {
+        return store.countDifferences(changed);
+    }
+
+    @Benchmark
+    public long iterate() {
+        long[] sum = new long[1];
+        store.forEach((x, y, z) -> sum[0] += x + y + z);
+        return sum[0];
+    }
+
+    @Benchmark
+    public TrackedLayer publishSnapshot() {
+        // A write between snapshots makes the store copy the touched section, as in the game
+        int i = toggle++ % positions;
+        if (!store.remove(xs[i], ys[i], zs[i])) {
+            store.add(xs[i], ys[i], zs[i]);
+        }
+        return store.snapshot(0xFFFFFF);
+    }
+}
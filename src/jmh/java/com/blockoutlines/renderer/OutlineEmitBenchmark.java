@@ -0,0 +1,123 @@
+package com.blockoutlines.renderer;
+
+import com.blockoutlines.tracking.SectionBitStore;
+import com.blockoutlines.tracking.TrackedLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// CPU side vertex emission for one section of full cubes: one box per block against the merged
+// hull. Vertices go to a consumer that only counts them, so no GPU or game client is involved.
+// A vein is a 10 block cluster, solid is a section filled completely (stone, netherrack).
+// The per block path is CubeEmitter, the direct emission that replaced the model renderer for
+// full cubes. The model renderer needs baked models, so that side of the comparison is the
+// cube and model ns/block OutlineMeshCache logs at debug level on every rebuild in game.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OutlineEmitBenchmark {
+    private static final long SECTION_KEY = ChunkSectionPos.asLong(0, 0, 0);
+
+    @Param({"vein", "solid"})
+    public String shape;
+
+    private long[] bits;
+    private TrackedLayer layer;
+    private final HullMesher hullMesher = new HullMesher();
+    private final CubeEmitter cubeEmitter = new CubeEmitter();
+    private final MatrixStack matrices = new MatrixStack();
+    private final CountingConsumer consumer = new CountingConsumer();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SectionBitStore store = new SectionBitStore();
+        if (shape.equals("vein")) {
+            int[][] vein = {
+                {5, 5, 5}, {6, 5, 5}, {6, 6, 5}, {7, 6, 5}, {6, 6, 6},
+                {5, 6, 6}, {5, 7, 6}, {6, 7, 6}, {6, 7, 7}, {7, 7, 7}
+            };
+            for (int[] pos : vein) {
+                store.add(pos[0], pos[1], pos[2]);
+            }
+        } else {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        store.add(x, y, z);
+                    }
+                }
+            }
+        }
+        layer = store.snapshot(0xFFFFFF);
+        bits = layer.getSection(SECTION_KEY);
+    }
+
+    @Benchmark
+    public int perBlockCubes() {
+        consumer.vertices = 0;
+        SectionBitStore.forEachInSection(SECTION_KEY, bits, (x, y, z) -> {
+            matrices.push();
+            matrices.translate(x, y, z);
+            cubeEmitter.emit(matrices, consumer, 0f, 0f, 1f, 1f);
+            matrices.pop();
+        });
+        return consumer.vertices;
+    }
+
+    @Benchmark
+    public int mergedHull() {
+        consumer.vertices = 0;
+        // Only this section is tracked, so the hull never has to ask the world about neighbors
+        hullMesher.setHull(SECTION_KEY, bits, layer, null);
+        hullMesher.emit(0.5f, 0.5f, consumer);
+        return consumer.vertices;
+    }
+
+    private static final class CountingConsumer implements VertexConsumer {
+        int vertices;
+        float checksum;
+
+        @Override
+        public VertexConsumer vertex(float x, float y, float z) {
+            vertices++;
+            checksum += x + y + z;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer color(int red, int green, int blue, int alpha) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer texture(float u, float v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer overlay(int u, int v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer light(int u, int v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer normal(float x, float y, float z) {
+            return this;
+        }
+    }
+}
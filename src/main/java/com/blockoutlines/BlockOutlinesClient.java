@@ -1,25 +1,65 @@
 package com.blockoutlines;
 
+import com.blockoutlines.capture.CaptureRecorder;
 import com.blockoutlines.client.gui.BlockOutlinesConfigScreen;
+import com.blockoutlines.client.gui.BlockSearchIndex;
+import com.blockoutlines.client.gui.PerformanceOverlay;
+import com.blockoutlines.renderer.CustomBlockOutlineRenderer;
+import com.blockoutlines.scan.CaptureCursor;
+import com.blockoutlines.scan.ScanJob;
+import com.blockoutlines.scan.ScanScheduler;
+import com.blockoutlines.scan.ScanShape;
+import com.blockoutlines.scan.ScanStats;
+import com.blockoutlines.scan.ScanVolume;
+import com.blockoutlines.scan.SectionScanner;
+import com.blockoutlines.stats.PerformanceStats;
+import com.blockoutlines.stats.Telemetry;
+import com.blockoutlines.target.BlockFilter;
+import com.blockoutlines.target.OutlineTarget;
+import com.blockoutlines.target.TargetMatcher;
+import com.blockoutlines.tracking.DiscoveryCache;
+import com.blockoutlines.tracking.SectionBitStore;
+import com.blockoutlines.tracking.TrackedLayer;
+import com.blockoutlines.tracking.TrackedSnapshot;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.CommonLifecycleEvents;
+import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
+import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.option.KeyBinding;
+import net.minecraft.client.render.Frustum;
 import net.minecraft.client.util.InputUtil;
 import net.minecraft.client.world.ClientWorld;
+import net.minecraft.registry.Registries;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
 import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.chunk.WorldChunk;
 import org.lwjgl.glfw.GLFW;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BlockOutlinesClient implements ClientModInitializer {
     
@@ -32,18 +72,64 @@ public class BlockOutlinesClient implements ClientModInitializer {
     private boolean enabled = false;
     private int scanRadius = 32; // Blocks to scan around player
     private int scanRate = 20; // Ticks between scans (20 = 1 second)
-    private Block targetBlock = Blocks.DIAMOND_ORE; // Configurable target block
-    private int outlineColor = 0xFFFFFF; // Default white color (RGB)
+    private boolean scanLoadedWorld = false; // Scan every chunk once as it loads, the radius then only limits drawing
+    private ScanShape scanShape = ScanShape.CUBE;
+    private int scanMinY = ScanVolume.NO_MIN_Y; // Absolute Y band to scan in, such as -64..16 for diamonds
+    private int scanMaxY = ScanVolume.NO_MAX_Y;
+    private int maxRenderDistance = 0; // Blocks from the camera outlines are drawn within, 0 = whole scan range
+    private boolean mergeHull = true; // Draw full-cube targets as one merged shell per cluster
+    private int targetFps = 0; // Frame rate the outline render budget holds, 0 = no budget
+    private boolean performanceOverlayShown = false; // Scan and render cost in the top left corner
+    private int scanBudgetMicros = 1000; // Client thread time scan captures may take per tick, 0 = no limit
+    // Blocks to outline, each with its own color (RGB). The first one is the primary target
+    // that the target selector and color picker edit. Default: diamond ore (and deepslate diamond ore) in white.
+    private List<OutlineTarget> targets = List.of(new OutlineTarget(BlockFilter.family(Blocks.DIAMOND_ORE), 0xFFFFFF));
     private boolean autoColorMode = false; // Whether to automatically update color when target block changes
     
+    // Full rescans only back up the block/chunk events and window moves, 600 ticks = 30 seconds
+    private static final int CONSISTENCY_SCAN_TICKS = 600;
+    // Found positions are written to the discovery cache in batches, 1200 ticks = 1 minute
+    private static final int CACHE_FLUSH_TICKS = 1200;
+    // Columns whose results are kept when the loaded world is scanned, a render distance of 32
+    private static final int MAX_RETAINED_COLUMNS = 65 * 65;
+    
     // State tracking
     private int tickCounter = 0;
-    private final Set<BlockPos> trackedBlockPositions = ConcurrentHashMap.newKeySet();
-    private final Set<BlockPos> previousPositions = new HashSet<>();
+    private int ticksSinceFullScan = 0;
+    private int ticksSinceCacheFlush = 0;
+    private ClientWorld scannedWorld;
+    private ScanVolume scannedVolume;
+    private long scannedSection;
+    private boolean fullScanRequested = false;
+    private boolean fullScanPending = false;
+    private TargetMatcher targetMatcher = new TargetMatcher(targets);
+    // One store per target, owned by the client thread. The renderer only ever sees published snapshots
+    private SectionBitStore[] trackedBlocks = newStores(targets.size());
+    private volatile TrackedSnapshot trackedSnapshot = TrackedSnapshot.EMPTY;
+    private boolean trackedBlocksChanged = false;
+    private final LongSet changedDuringScan = new LongOpenHashSet();
+    // Full scan or window move capture spread over several ticks, null when none is in progress
+    private CaptureCursor pendingCapture;
+    // Where the window move being captured starts from, null when it is a full scan
+    private ScanVolume pendingPreviousVolume;
+    private final LongSet chunksLoadedDuringCapture = new LongOpenHashSet();
+    // Loaded columns waiting for their capture, nearest first when the loaded world is scanned,
+    // and the one being captured within the same per tick budget, null when none is
+    private final LongLinkedOpenHashSet chunkScanQueue = new LongLinkedOpenHashSet();
+    private CaptureCursor chunkCapture;
+    private ChunkPos chunkCapturePos;
+    // When the loaded world is scanned: the columns whose results are tracked, least recently used first
+    private final LongLinkedOpenHashSet retainedColumns = new LongLinkedOpenHashSet();
+    private long retainedCenter = Long.MAX_VALUE;
+    private final ScanScheduler scanScheduler = new ScanScheduler();
+    private final CaptureRecorder captureRecorder = new CaptureRecorder();
+    // Positions found in earlier sessions for the current world and targets, null when there is none
+    private DiscoveryCache discoveryCache;
     
     // Keybinding
     private static KeyBinding toggleOutlinesKey;
     private static KeyBinding openConfigKey;
+    private static KeyBinding toggleCaptureKey;
     
     @Override
     public void onInitializeClient() {
@@ -64,6 +150,14 @@ public class BlockOutlinesClient implements ClientModInitializer {
             "category.block-outlines.general"
         ));
         
+        // Unbound by default, only useful for collecting performance captures
+        toggleCaptureKey = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+            "key.block-outlines.toggle_capture",
+            InputUtil.Type.KEYSYM,
+            GLFW.GLFW_KEY_UNKNOWN,
+            "category.block-outlines.general"
+        ));
+        
         // Register client tick event
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
             // Handle keybinding
@@ -75,16 +169,105 @@ public class BlockOutlinesClient implements ClientModInitializer {
                 openConfigScreen(client);
             }
             
-            // Perform periodic scans if enabled
+            while (toggleCaptureKey.wasPressed()) {
+                toggleCapture(client);
+            }
+            
+            if (captureRecorder.isRecording()) {
+                if (client.player != null && captureRecorder.isRecording(client.world)) {
+                    captureRecorder.tick(client.player.getPos());
+                } else {
+                    // Left the world or changed dimension, the capture ends there
+                    toggleCapture(client);
+                }
+            }
+            
+            // Block and chunk events keep the tracked set current and the scan window follows the
+            // player section by section, full scans only run after a settings change or jump, or
+            // as a slow consistency check
             if (enabled && client.player != null && client.world != null) {
+                applyCompletedScans(client);
+                
                 tickCounter++;
+                ticksSinceFullScan++;
+                if (++ticksSinceCacheFlush >= CACHE_FLUSH_TICKS) {
+                    ticksSinceCacheFlush = 0;
+                    flushDiscoveryCache();
+                }
                 if (tickCounter % scanRate == 0) {
-                    scanForTargetBlocks(client);
                     tickCounter = 0; // Reset counter to prevent overflow
+                    if (!fullScanPending && needsFullScan(client)) {
+                        scheduleFullScan(client);
+                    }
+                }
+                
+                // Every capture shares one budget per tick, chunk captures get what the full
+                // scan or window move leaves. Section changes while a move is being captured
+                // wait for it, the next move then goes straight to the player's section.
+                long deadline = captureDeadline();
+                if (pendingCapture == null && !scanLoadedWorld && !fullScanRequested && client.world == scannedWorld
+                    && ChunkSectionPos.toLong(client.player.getBlockPos()) != scannedSection) {
+                    moveWindow(client);
+                }
+                if (pendingCapture != null) {
+                    continueCapture(client, deadline);
                 }
+                if (pendingCapture == null && client.world == scannedWorld) {
+                    captureQueuedChunks(client, deadline);
+                    if (scanLoadedWorld) {
+                        touchRetainedColumns(client);
+                    }
+                }
+            }
+        });
+        
+        HudRenderCallback.EVENT.register(PerformanceOverlay::render);
+        
+        ClientChunkEvents.CHUNK_LOAD.register(this::onChunkLoaded);
+        ClientChunkEvents.CHUNK_UNLOAD.register(this::onChunkUnloaded);
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> closeDiscoveryCache());
+        
+        // Tag targets only match once the server has sent its tags, so recompile then. Other
+        // targets match the same either way and keep what is tracked.
+        CommonLifecycleEvents.TAGS_LOADED.register((registries, client) -> {
+            if (client && targets.stream().anyMatch(target -> target.filter().usesTags())) {
+                rebuildMatcher();
             }
         });
         
+        // Cached outline meshes hold atlas coordinates, which move when resources are reloaded
+        ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(
+            new SimpleSynchronousResourceReloadListener() {
+                @Override
+                public Identifier getFabricId() {
+                    return Identifier.of(MOD_ID, "outline_meshes");
+                }
+                
+                @Override
+                public void reload(ResourceManager manager) {
+                    CustomBlockOutlineRenderer.invalidateMeshes();
+                }
+            }
+        );
+        
+        // The block search index holds translated names, a language change comes with a reload
+        ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(
+            new SimpleSynchronousResourceReloadListener() {
+                @Override
+                public Identifier getFabricId() {
+                    return Identifier.of(MOD_ID, "block_search");
+                }
+                
+                @Override
+                public void reload(ResourceManager manager) {
+                    BlockSearchIndex.invalidate();
+                }
+            }
+        );
+        
+        // Live counters for JMX clients such as JDK Mission Control, see TelemetryMXBean
+        Telemetry.register();
+        
         LOGGER.info("Block Outlines client initialized!");
     }
     
@@ -93,11 +276,10 @@ public class BlockOutlinesClient implements ClientModInitializer {
         
         if (!enabled) {
             // Clear all tracked positions when disabled
-            trackedBlockPositions.clear();
-            previousPositions.clear();
+            clearTracking();
         } else {
             // Immediate scan when enabled
-            scanForTargetBlocks(client);
+            scheduleFullScan(client);
         }
         
         // Send feedback to player
@@ -112,48 +294,531 @@ public class BlockOutlinesClient implements ClientModInitializer {
         LOGGER.info("Block Outlines {}", enabled ? "enabled" : "disabled");
     }
     
-    private void scanForTargetBlocks(MinecraftClient client) {
+    // Records the loaded world and the player's path for ReplayHarness, see WorldCapture
+    private void toggleCapture(MinecraftClient client) {
+        if (captureRecorder.isRecording()) {
+            int sections = captureRecorder.getSectionCount();
+            Path directory = FabricLoader.getInstance().getGameDir().resolve(MOD_ID).resolve("captures");
+            captureRecorder.stop(directory).whenCompleteAsync((file, error) -> {
+                if (client.player != null) {
+                    client.player.sendMessage(Text.literal(error == null
+                        ? "Block Outlines capture saved: " + file.getFileName() + " (" + sections + " sections)"
+                        : "Block Outlines capture failed, see log"), false);
+                }
+            }, client);
+            return;
+        }
+        
+        if (client.player == null || client.world == null) {
+            return;
+        }
+        captureRecorder.start(client.world, client.player.getChunkPos(), client.options.getClampedViewDistance());
+        client.player.sendMessage(Text.literal(
+            "Block Outlines capture started (" + captureRecorder.getSectionCount() + " sections)"
+        ), false);
+    }
+    
+    // Captures the sections around the player and hands them to the scan worker. The
+    // result replaces the tracked set once applyCompletedScans picks it up. Capturing starts
+    // with the next capture slice of the tick and is spread over as many ticks as the scan
+    // budget needs, no new full scan starts meanwhile, so with a tight budget the scan
+    // period stretches instead of ticks getting longer.
+    private void scheduleFullScan(MinecraftClient client) {
         if (client.player == null || client.world == null) {
             return;
         }
         
+        if (scanLoadedWorld) {
+            scheduleLoadedWorldScan(client);
+            return;
+        }
+        
+        BlockPos playerPos = client.player.getBlockPos();
+        ScanVolume volume = windowVolume(client.world, playerPos);
+        pendingCapture = new CaptureCursor(SectionScanner.sourceOf(client.world), volume, targetMatcher, new ScanStats());
+        pendingPreviousVolume = null;
+        chunksLoadedDuringCapture.clear();
+        // The full capture takes in every loaded column
+        chunkScanQueue.clear();
+        chunkCapture = null;
+        
+        if (discoveryCache != null && !discoveryCache.isFor(client.world, targets)) {
+            closeDiscoveryCache();
+        }
+        scannedWorld = client.world;
+        scannedVolume = volume;
+        scannedSection = ChunkSectionPos.toLong(playerPos);
+        ticksSinceFullScan = 0;
+        fullScanRequested = false;
+        fullScanPending = true;
+        if (discoveryCache == null) {
+            openDiscoveryCache(client);
+        }
+    }
+    
+    // Queues every loaded chunk for its own scan, nearest first. Scanned columns are replaced
+    // one at a time as their scans land, so nothing is cleared up front unless the world changed.
+    private void scheduleLoadedWorldScan(MinecraftClient client) {
         ClientWorld world = client.world;
+        if (discoveryCache != null && !discoveryCache.isFor(world, targets)) {
+            closeDiscoveryCache();
+        }
+        if (world != scannedWorld) {
+            trackedBlocks = newStores(targets.size());
+            trackedBlocksChanged = true;
+            retainedColumns.clear();
+        }
+        
+        scannedWorld = world;
+        scannedVolume = ScanVolume.allColumns(scanMinY, scanMaxY, world.getBottomY(), world.getTopYInclusive());
+        scannedSection = ChunkSectionPos.toLong(client.player.getBlockPos());
+        ticksSinceFullScan = 0;
+        fullScanRequested = false;
+        fullScanPending = false;
+        
+        ChunkPos center = client.player.getChunkPos();
+        int range = loadedChunkRange(client);
+        chunkScanQueue.clear();
+        chunkCapture = null;
+        queueLoadedChunk(world, center.x, center.z);
+        for (int ring = 1; ring <= range; ring++) {
+            for (int i = -ring; i <= ring; i++) {
+                queueLoadedChunk(world, center.x + i, center.z - ring);
+                queueLoadedChunk(world, center.x + i, center.z + ring);
+            }
+            for (int i = -ring + 1; i < ring; i++) {
+                queueLoadedChunk(world, center.x - ring, center.z + i);
+                queueLoadedChunk(world, center.x + ring, center.z + i);
+            }
+        }
+        if (discoveryCache == null) {
+            openDiscoveryCache(client);
+        }
+    }
+    
+    private void queueLoadedChunk(ClientWorld world, int chunkX, int chunkZ) {
+        if (world.getChunkManager().isChunkLoaded(chunkX, chunkZ)) {
+            chunkScanQueue.add(ChunkPos.toLong(chunkX, chunkZ));
+        }
+    }
+    
+    // Chunks the client can hold around the player, the radius of its chunk map
+    private static int loadedChunkRange(MinecraftClient client) {
+        return Math.max(2, client.options.getClampedViewDistance()) + 3;
+    }
+    
+    // Client thread time the captures of this tick may take, see scanBudgetMicros
+    private long captureDeadline() {
+        return scanBudgetMicros > 0 ? System.nanoTime() + scanBudgetMicros * 1000L : Long.MAX_VALUE;
+    }
+    
+    // Captures queued chunks until the deadline, resuming a chunk left half done last tick.
+    // Each finished chunk goes to the worker on its own.
+    private void captureQueuedChunks(MinecraftClient client, long deadline) {
+        while (System.nanoTime() < deadline) {
+            if (chunkCapture == null) {
+                if (chunkScanQueue.isEmpty()) {
+                    return;
+                }
+                long packed = chunkScanQueue.removeFirstLong();
+                WorldChunk chunk = client.world.getChunkManager().getWorldChunk(
+                    ChunkPos.getPackedX(packed), ChunkPos.getPackedZ(packed), false
+                );
+                if (chunk == null) {
+                    continue;
+                }
+                chunkCapture = startChunkCapture(client.world, chunk);
+                chunkCapturePos = chunk.getPos();
+                if (chunkCapture == null) {
+                    continue;
+                }
+            }
+            
+            if (!chunkCapture.advance(SectionScanner.sourceOf(client.world), deadline)) {
+                return;
+            }
+            scanScheduler.submit(new ScanJob(
+                ScanJob.Kind.CHUNK, scanScheduler.getGeneration(), chunkCapturePos, scanRadius, targets, targetMatcher,
+                chunkCapture.getSections(), chunkCapture.getStats()
+            ));
+            chunkCapture = null;
+        }
+    }
+    
+    // The columns within the scan radius are the ones outlines are drawn in, so they count as
+    // used whenever the player enters another chunk and are the last to be evicted
+    private void touchRetainedColumns(MinecraftClient client) {
+        ChunkPos center = client.player.getChunkPos();
+        if (center.toLong() == retainedCenter) {
+            return;
+        }
+        retainedCenter = center.toLong();
+        int range = ChunkSectionPos.getSectionCoord(scanRadius) + 1;
+        for (int chunkX = center.x - range; chunkX <= center.x + range; chunkX++) {
+            for (int chunkZ = center.z - range; chunkZ <= center.z + range; chunkZ++) {
+                long packed = ChunkPos.toLong(chunkX, chunkZ);
+                if (retainedColumns.contains(packed)) {
+                    retainedColumns.addAndMoveToLast(packed);
+                }
+            }
+        }
+    }
+    
+    // Marks a column as used and evicts the least recently used ones past the limit. Evicted
+    // columns go to the discovery cache first, so coming back to them is still instant.
+    private void retainColumn(long packed) {
+        retainedColumns.addAndMoveToLast(packed);
+        while (retainedColumns.size() > MAX_RETAINED_COLUMNS) {
+            long evicted = retainedColumns.removeFirstLong();
+            dropColumn(ChunkPos.getPackedX(evicted), ChunkPos.getPackedZ(evicted));
+        }
+    }
+    
+    private void dropColumn(int chunkX, int chunkZ) {
+        if (discoveryCache != null && discoveryCache.getWorld() == scannedWorld) {
+            discoveryCache.mergeColumn(chunkX, chunkZ, trackedBlocks, scannedVolume);
+        }
+        if (scannedWorld == null) {
+            return;
+        }
+        for (SectionBitStore store : trackedBlocks) {
+            store.removeColumn(chunkX, chunkZ, scannedWorld.getBottomSectionCoord(), scannedWorld.getTopSectionCoord());
+        }
+        trackedBlocksChanged = true;
+    }
+    
+    // Starts loading what earlier sessions found here. Once loaded, the cached positions in
+    // chunks that are already loaded are checked and shown right away, without waiting for
+    // the scan.
+    private void openDiscoveryCache(MinecraftClient client) {
+        Path root = FabricLoader.getInstance().getGameDir().resolve(MOD_ID).resolve("cache");
+        discoveryCache = DiscoveryCache.open(root, client, client.world, targets);
+        if (discoveryCache == null) {
+            return;
+        }
+        ticksSinceCacheFlush = 0;
+        discoveryCache.load(client).thenAccept(cache -> {
+            if (cache != discoveryCache || !enabled || cache.getWorld() != scannedWorld) {
+                return;
+            }
+            // Only the columns the client can hold, the volume may span the whole world
+            ScanVolume volume = scannedVolume;
+            int range = loadedChunkRange(client);
+            int centerX = ChunkSectionPos.unpackX(scannedSection);
+            int centerZ = ChunkSectionPos.unpackZ(scannedSection);
+            int minChunkX = Math.max(ChunkSectionPos.getSectionCoord(volume.minX()), centerX - range);
+            int maxChunkX = Math.min(ChunkSectionPos.getSectionCoord(volume.maxX()), centerX + range);
+            int minChunkZ = Math.max(ChunkSectionPos.getSectionCoord(volume.minZ()), centerZ - range);
+            int maxChunkZ = Math.min(ChunkSectionPos.getSectionCoord(volume.maxZ()), centerZ + range);
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    WorldChunk chunk = scannedWorld.getChunkManager().getWorldChunk(chunkX, chunkZ, false);
+                    if (chunk != null) {
+                        trackedBlocksChanged |= cache.verifyColumn(chunk, volume, targetMatcher, trackedBlocks);
+                    }
+                }
+            }
+        });
+    }
+    
+    // Hands what the scans found in loaded chunks to the cache, which writes it off thread
+    private void flushDiscoveryCache() {
+        if (discoveryCache == null || discoveryCache.getWorld() != scannedWorld) {
+            return;
+        }
+        if (scanLoadedWorld) {
+            LongIterator iterator = retainedColumns.iterator();
+            while (iterator.hasNext()) {
+                long packed = iterator.nextLong();
+                discoveryCache.mergeColumn(ChunkPos.getPackedX(packed), ChunkPos.getPackedZ(packed), trackedBlocks, scannedVolume);
+            }
+        } else {
+            discoveryCache.merge(trackedBlocks, scannedVolume);
+        }
+        discoveryCache.flush();
+    }
+    
+    private void closeDiscoveryCache() {
+        flushDiscoveryCache();
+        discoveryCache = null;
+    }
+    
+    // Captures until the deadline, then submits the scan once the box is complete
+    private void continueCapture(MinecraftClient client, long deadline) {
+        if (client.world != scannedWorld) {
+            // The world changed mid capture, the next scan check starts over
+            pendingCapture = null;
+            pendingPreviousVolume = null;
+            fullScanPending = scanScheduler.isBusy();
+            return;
+        }
+        
+        if (!pendingCapture.advance(SectionScanner.sourceOf(client.world), deadline)) {
+            return;
+        }
+        
+        CaptureCursor capture = pendingCapture;
+        ScanVolume previous = pendingPreviousVolume;
+        pendingCapture = null;
+        pendingPreviousVolume = null;
+        if (previous == null) {
+            scanScheduler.submit(new ScanJob(
+                ScanJob.Kind.FULL, scanScheduler.getGeneration(), null, scanRadius, targets, targetMatcher,
+                capture.getSections(), capture.getStats()
+            ));
+        } else {
+            // No other move starts while one is captured, so the window is still where this one goes
+            scanScheduler.submit(new ScanJob(
+                ScanJob.Kind.WINDOW, scanScheduler.getGeneration(), null, scanRadius, targets, targetMatcher,
+                capture.getSections(), capture.getStats(), previous, scannedVolume
+            ));
+        }
+        
+        // Columns passed over before their chunk arrived are missing from the capture. Chunk
+        // scans are submitted after the full scan, so they land on top of its result.
+        chunkScanQueue.addAll(chunksLoadedDuringCapture);
+        chunksLoadedDuringCapture.clear();
+    }
+    
+    // Moves the scan window to the player's section. Only the sections whose coverage changed
+    // are captured, the slab entered and the trimmed edges, so the work per move grows with
+    // the window's surface rather than its volume. The capture runs within the tick budget
+    // like a full scan's, and sections left behind are dropped once the job lands. A jump
+    // past the old window, such as a teleport, is a full scan instead.
+    private void moveWindow(MinecraftClient client) {
         BlockPos playerPos = client.player.getBlockPos();
-        Set<BlockPos> currentPositions = new HashSet<>();
-        
-        // Scan in a cube around the player
-        for (int x = -scanRadius; x <= scanRadius; x++) {
-            for (int y = -scanRadius; y <= scanRadius; y++) {
-                for (int z = -scanRadius; z <= scanRadius; z++) {
-                    BlockPos pos = playerPos.add(x, y, z);
-                    
-                    // Check if this position has the target block
-                    BlockState blockState = world.getBlockState(pos);
-                    if (blockState.isOf(targetBlock) || 
-                        (targetBlock == Blocks.DIAMOND_ORE && blockState.isOf(Blocks.DEEPSLATE_DIAMOND_ORE))) {
-                        currentPositions.add(pos.toImmutable());
+        ScanVolume previous = scannedVolume;
+        ScanVolume volume = windowVolume(client.world, playerPos);
+        if (!volume.overlaps(previous)) {
+            scheduleFullScan(client);
+            return;
+        }
+        
+        pendingCapture = new CaptureCursor(
+            SectionScanner.sourceOf(client.world), previous, volume, targetMatcher, new ScanStats()
+        );
+        pendingPreviousVolume = previous;
+        chunksLoadedDuringCapture.clear();
+        // A chunk capture clipped to the old window would land after the move and cut it back
+        if (chunkCapture != null) {
+            chunkScanQueue.addAndMoveToFirst(chunkCapturePos.toLong());
+            chunkCapture = null;
+        }
+        scannedVolume = volume;
+        scannedSection = ChunkSectionPos.toLong(playerPos);
+    }
+    
+    // The scan volume around the player's section. It is centered on the middle of that
+    // section rather than on the player, so it only moves when the player changes section.
+    private ScanVolume windowVolume(ClientWorld world, BlockPos playerPos) {
+        return ScanVolume.around(
+            ChunkSectionPos.getBlockCoord(ChunkSectionPos.getSectionCoord(playerPos.getX())) + 8,
+            ChunkSectionPos.getBlockCoord(ChunkSectionPos.getSectionCoord(playerPos.getY())) + 8,
+            ChunkSectionPos.getBlockCoord(ChunkSectionPos.getSectionCoord(playerPos.getZ())) + 8,
+            scanRadius, scanShape, scanMinY, scanMaxY,
+            world.getBottomY(), world.getTopYInclusive()
+        );
+    }
+    
+    private void applyCompletedScans(MinecraftClient client) {
+        boolean applied = false;
+        ScanJob job;
+        while ((job = scanScheduler.pollCompleted()) != null) {
+            applied = true;
+            if (job.getKind() == ScanJob.Kind.FULL) {
+                // Take over the worker's store as a whole, it is published with the next snapshot
+                SectionBitStore[] previous = trackedBlocks;
+                trackedBlocks = job.getResults();
+                trackedBlocksChanged = true;
+                fullScanPending = pendingCapture != null && pendingPreviousVolume == null;
+                PerformanceStats.recordScan(job.getStats());
+                LOGGER.debug("Scan: {}", job.getStats());
+                
+                // Log changes for debugging
+                if (LOGGER.isDebugEnabled()) {
+                    int found = 0, changed = 0, sectionCount = 0;
+                    long memory = 0;
+                    for (int i = 0; i < trackedBlocks.length; i++) {
+                        found += trackedBlocks[i].size();
+                        changed += trackedBlocks[i].countDifferences(previous[i]);
+                        sectionCount += trackedBlocks[i].getSectionCount();
+                        memory += trackedBlocks[i].estimateMemoryBytes();
+                    }
+                    LOGGER.debug(
+                        "Found {} block(s) of {} target(s) within {} blocks, {} changed, {} sections using ~{} KB",
+                        found, trackedBlocks.length, scanRadius, changed, sectionCount, memory / 1024
+                    );
+                }
+            } else if (job.getKind() == ScanJob.Kind.WINDOW) {
+                // Sections both windows cover in full were not captured and stay as they are,
+                // everything else is either replaced by the job or has left the window
+                ScanVolume previous = job.getPreviousVolume();
+                ScanVolume volume = job.getVolume();
+                SectionBitStore[] results = job.getResults();
+                for (int i = 0; i < trackedBlocks.length; i++) {
+                    trackedBlocks[i].removeSectionsIf(key -> {
+                        int x = ChunkSectionPos.unpackX(key);
+                        int y = ChunkSectionPos.unpackY(key);
+                        int z = ChunkSectionPos.unpackZ(key);
+                        return !previous.coversSection(x, y, z) || !volume.coversSection(x, y, z);
+                    });
+                    trackedBlocks[i].putAll(results[i]);
+                }
+                trackedBlocksChanged = true;
+                PerformanceStats.recordWindowScan(job.getStats());
+            } else {
+                PerformanceStats.recordChunkScan(job.getStats());
+                ChunkPos chunkPos = job.getChunkPos();
+                if (client.world.getChunkManager().isChunkLoaded(chunkPos.x, chunkPos.z)) {
+                    SectionBitStore[] results = job.getResults();
+                    for (int i = 0; i < trackedBlocks.length; i++) {
+                        trackedBlocks[i].removeColumn(
+                            chunkPos.x, chunkPos.z, client.world.getBottomSectionCoord(), client.world.getTopSectionCoord()
+                        );
+                        trackedBlocks[i].putAll(results[i]);
+                    }
+                    trackedBlocksChanged = true;
+                    if (scanLoadedWorld) {
+                        retainColumn(chunkPos.toLong());
                     }
                 }
             }
         }
         
-        // Update tracked positions
-        synchronized (trackedBlockPositions) {
-            trackedBlockPositions.clear();
-            trackedBlockPositions.addAll(currentPositions);
+        // Blocks that changed after their sections were captured are stale in the results
+        if (applied) {
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            LongIterator iterator = changedDuringScan.iterator();
+            while (iterator.hasNext()) {
+                long packed = iterator.nextLong();
+                pos.set(BlockPos.unpackLongX(packed), BlockPos.unpackLongY(packed), BlockPos.unpackLongZ(packed));
+                updateTrackedBlock(pos, client.world.getBlockState(pos));
+            }
+            // Once per batch, whatever kind of scan it held
+            Telemetry.INSTANCE.recordTracked(getTrackedBlockCount(), getTrackedMemoryBytes());
+        }
+        if (!scanScheduler.isBusy() && pendingCapture == null) {
+            changedDuringScan.clear();
+            fullScanPending = false;
+        }
+    }
+    
+    private boolean needsFullScan(MinecraftClient client) {
+        return fullScanRequested
+            || client.world != scannedWorld
+            || !scanLoadedWorld && ticksSinceFullScan >= CONSISTENCY_SCAN_TICKS;
+    }
+    
+    // Drops everything tracked and cancels any scan still running for the old settings
+    private void clearTracking() {
+        closeDiscoveryCache();
+        scanScheduler.cancelAll();
+        trackedBlocks = newStores(targets.size());
+        trackedBlocksChanged = true;
+        changedDuringScan.clear();
+        scannedWorld = null;
+        fullScanPending = false;
+        pendingCapture = null;
+        pendingPreviousVolume = null;
+        chunksLoadedDuringCapture.clear();
+        chunkScanQueue.clear();
+        chunkCapture = null;
+        retainedColumns.clear();
+        PerformanceStats.clear();
+    }
+    
+    // Called from ClientWorldMixin for every client-side block change, including the
+    // ones unpacked from chunk delta (multi-block) update packets
+    public void onBlockChanged(ClientWorld world, BlockPos pos, BlockState newState) {
+        captureRecorder.onBlockChanged(world, pos, newState);
+        if (!enabled || world != scannedWorld || !isInScanRange(pos)) {
+            return;
         }
         
-        // Log changes for debugging
-        if (!currentPositions.equals(previousPositions)) {
-            int found = currentPositions.size();
-            if (found > 0) {
-                LOGGER.debug("Found {} target block(s) within {} blocks", found, scanRadius);
+        updateTrackedBlock(pos, newState);
+        if (scanScheduler.isBusy() || pendingCapture != null) {
+            changedDuringScan.add(pos.asLong());
+        }
+    }
+    
+    private void updateTrackedBlock(BlockPos pos, BlockState state) {
+        int target = targetMatcher.targetOf(state);
+        if (target != TargetMatcher.NO_TARGET) {
+            // The position may already be tracked, but the new state can still have a different model
+            CustomBlockOutlineRenderer.markBlockDirty(pos);
+        }
+        for (int i = 0; i < trackedBlocks.length; i++) {
+            if (i == target) {
+                trackedBlocksChanged |= trackedBlocks[i].add(pos.getX(), pos.getY(), pos.getZ());
+            } else {
+                trackedBlocksChanged |= trackedBlocks[i].remove(pos.getX(), pos.getY(), pos.getZ());
             }
-            previousPositions.clear();
-            previousPositions.addAll(currentPositions);
         }
     }
     
+    private void onChunkLoaded(ClientWorld world, WorldChunk chunk) {
+        captureRecorder.onChunkLoaded(world, chunk);
+        if (!enabled || world != scannedWorld) {
+            return;
+        }
+        // Cached finds show up with the chunk, the scan below confirms or replaces them
+        if (discoveryCache != null && discoveryCache.getWorld() == world) {
+            trackedBlocksChanged |= discoveryCache.verifyColumn(chunk, scannedVolume, targetMatcher, trackedBlocks);
+        }
+        // Captured in the tick's budget, a burst of loads is spread over as many ticks as it needs
+        if (pendingCapture != null) {
+            chunksLoadedDuringCapture.add(chunk.getPos().toLong());
+        } else {
+            chunkScanQueue.add(chunk.getPos().toLong());
+        }
+    }
+    
+    // The capture of the part of the scan volume in chunk, null when they do not meet
+    private CaptureCursor startChunkCapture(ClientWorld world, WorldChunk chunk) {
+        // A chunk can be replaced by a fresh data packet, its old entries go when the scan lands
+        ChunkPos chunkPos = chunk.getPos();
+        ScanVolume volume = scannedVolume;
+        int minX = Math.max(chunkPos.getStartX(), volume.minX());
+        int minZ = Math.max(chunkPos.getStartZ(), volume.minZ());
+        int maxX = Math.min(chunkPos.getEndX(), volume.maxX());
+        int maxZ = Math.min(chunkPos.getEndZ(), volume.maxZ());
+        if (minX > maxX || minZ > maxZ) {
+            return null;
+        }
+        
+        return new CaptureCursor(
+            SectionScanner.sourceOf(world),
+            minX, volume.minY(), minZ,
+            maxX, volume.maxY(), maxZ,
+            volume, targetMatcher, new ScanStats()
+        );
+    }
+    
+    private void onChunkUnloaded(ClientWorld world, WorldChunk chunk) {
+        long packed = chunk.getPos().toLong();
+        chunksLoadedDuringCapture.remove(packed);
+        chunkScanQueue.remove(packed);
+        if (chunkCapture != null && chunkCapturePos.toLong() == packed) {
+            chunkCapture = null;
+        }
+        retainedColumns.remove(packed);
+        if (world == scannedWorld) {
+            dropColumn(chunk.getPos().x, chunk.getPos().z);
+        }
+    }
+    
+    private boolean isInScanRange(BlockPos pos) {
+        return scannedVolume != null && scannedVolume.contains(pos.getX(), pos.getY(), pos.getZ());
+    }
+    
+    private static SectionBitStore[] newStores(int count) {
+        SectionBitStore[] stores = new SectionBitStore[count];
+        for (int i = 0; i < count; i++) {
+            stores[i] = new SectionBitStore();
+        }
+        return stores;
+    }
+    
     private void openConfigScreen(MinecraftClient client) {
         client.setScreen(new BlockOutlinesConfigScreen(client.currentScreen, this));
     }
@@ -172,41 +837,185 @@ public class BlockOutlinesClient implements ClientModInitializer {
             this.enabled = enabled;
             
             if (!enabled) {
-                trackedBlockPositions.clear();
-                previousPositions.clear();
+                clearTracking();
             } else {
                 MinecraftClient client = MinecraftClient.getInstance();
-                scanForTargetBlocks(client);
+                scheduleFullScan(client);
             }
             
             LOGGER.info("Block Outlines {}", enabled ? "enabled" : "disabled");
         }
     }
     
-    public Set<BlockPos> getTrackedBlockPositions() {
-        return new HashSet<>(trackedBlockPositions);
+    // Current tracked positions, republished lazily so block changes show up the same frame.
+    // Publishing shares the section masks instead of copying them, and reading is free.
+    public TrackedSnapshot getTrackedSnapshot() {
+        if (trackedBlocksChanged && MinecraftClient.getInstance().isOnThread()) {
+            trackedBlocksChanged = false;
+            TrackedLayer[] layers = new TrackedLayer[trackedBlocks.length];
+            for (int i = 0; i < layers.length; i++) {
+                layers[i] = trackedBlocks[i].snapshot(targets.get(i).color());
+            }
+            trackedSnapshot = new TrackedSnapshot(trackedSnapshot.getGeneration() + 1, layers);
+        }
+        return trackedSnapshot;
+    }
+    
+    public int getTrackedBlockCount() {
+        int count = 0;
+        for (SectionBitStore store : trackedBlocks) {
+            count += store.size();
+        }
+        return count;
+    }
+    
+    public long getTrackedMemoryBytes() {
+        long bytes = 0;
+        for (SectionBitStore store : trackedBlocks) {
+            bytes += store.estimateMemoryBytes();
+        }
+        return bytes;
+    }
+    
+    // Tracked positions inside the inclusive box between min and max, over every target
+    public List<BlockPos> getTrackedBlocksInBox(BlockPos min, BlockPos max) {
+        List<BlockPos> result = new ArrayList<>();
+        getTrackedSnapshot().forEachInBox(
+            min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ(),
+            (x, y, z) -> result.add(new BlockPos(x, y, z))
+        );
+        return result;
+    }
+    
+    // The k tracked positions nearest to pos, nearest first
+    public List<BlockPos> getNearestTrackedBlocks(Vec3d pos, int k) {
+        return getTrackedSnapshot().nearest(pos.x, pos.y, pos.z, k);
+    }
+    
+    public int countTrackedBlocksWithin(Vec3d pos, double radius) {
+        return getTrackedSnapshot().countWithin(pos.x, pos.y, pos.z, radius);
+    }
+    
+    public boolean isAnyTrackedBlockVisible(Frustum frustum) {
+        return getTrackedSnapshot().anyVisible(frustum::isVisible);
+    }
+    
+    public List<OutlineTarget> getTargets() {
+        return targets;
+    }
+    
+    // Replaces the target list. Only a change of blocks needs a rescan, a change of colors
+    // is picked up by the next published snapshot.
+    public void setTargets(List<OutlineTarget> newTargets) {
+        if (newTargets.isEmpty()) {
+            return;
+        }
+        
+        List<OutlineTarget> oldTargets = this.targets;
+        this.targets = List.copyOf(newTargets);
+        
+        boolean sameFilters = oldTargets.size() == targets.size();
+        for (int i = 0; sameFilters && i < targets.size(); i++) {
+            sameFilters = oldTargets.get(i).filter().equals(targets.get(i).filter());
+        }
+        if (sameFilters) {
+            trackedBlocksChanged = true;
+            return;
+        }
+        
+        rebuildMatcher();
+    }
+    
+    private void rebuildMatcher() {
+        this.targetMatcher = new TargetMatcher(targets);
+        
+        // Clear existing tracked positions to force fresh scan
+        clearTracking();
+        
+        if (enabled) {
+            MinecraftClient client = MinecraftClient.getInstance();
+            scheduleFullScan(client);
+        }
+    }
+    
+    public boolean hasTarget(Block block) {
+        return indexOfTarget(block) >= 0;
+    }
+    
+    // Adds a block as an extra target, colored from the block itself
+    public void addTarget(Block block) {
+        if (!hasTarget(block)) {
+            addTarget(new OutlineTarget(defaultFilter(block), extractBlockColor(block)));
+        }
+    }
+    
+    // Adds a target from its text form (see BlockFilter.parse), such as "#minecraft:logs",
+    // "~minecraft:gold_ore" or "minecraft:wheat[age=7]". Returns false if it cannot be parsed.
+    public boolean addTarget(String spec) {
+        BlockFilter filter;
+        try {
+            filter = BlockFilter.parse(spec);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid target '{}': {}", spec, e.getMessage());
+            return false;
+        }
+        addTarget(new OutlineTarget(filter, extractBlockColor(filter.getDisplayBlock())));
+        return true;
+    }
+    
+    private void addTarget(OutlineTarget target) {
+        if (targets.size() >= TargetMatcher.MAX_TARGETS) {
+            return;
+        }
+        List<OutlineTarget> newTargets = new ArrayList<>(targets);
+        newTargets.add(target);
+        setTargets(newTargets);
     }
     
+    // Ores are matched together with their deepslate and nether variants, everything else as is
+    private static BlockFilter defaultFilter(Block block) {
+        return Registries.BLOCK.getId(block).getPath().endsWith("_ore") ? BlockFilter.family(block) : BlockFilter.of(block);
+    }
+    
+    // Removes a target, the last remaining target cannot be removed
+    public void removeTarget(Block block) {
+        int index = indexOfTarget(block);
+        if (index >= 0 && targets.size() > 1) {
+            List<OutlineTarget> newTargets = new ArrayList<>(targets);
+            newTargets.remove(index);
+            setTargets(newTargets);
+        }
+    }
+    
+    private int indexOfTarget(Block block) {
+        for (int i = 0; i < targets.size(); i++) {
+            if (targets.get(i).block() == block) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // The primary target, edited by the target selector and the color picker
     public Block getTargetBlock() {
-        return targetBlock;
+        return targets.get(0).block();
     }
     
     public void setTargetBlock(Block block) {
-        if (this.targetBlock != block) {
-            this.targetBlock = block;
-            
-            // Clear existing tracked positions to force fresh scan
-            trackedBlockPositions.clear();
-            previousPositions.clear();
+        if (getTargetBlock() != block) {
+            List<OutlineTarget> newTargets = new ArrayList<>(targets);
+            int existing = indexOfTarget(block);
+            if (existing > 0) {
+                newTargets.remove(existing);
+            }
             
             // Auto update color if auto color mode is enabled
-            if (autoColorMode) {
-                updateAutoColor();
-            }
+            int color = autoColorMode ? extractBlockColor(block) : targets.get(0).color();
+            newTargets.set(0, new OutlineTarget(defaultFilter(block), color));
+            setTargets(newTargets);
             
-            if (enabled) {
-                MinecraftClient client = MinecraftClient.getInstance();
-                scanForTargetBlocks(client);
+            if (autoColorMode) {
+                logAutoColor(block, color);
             }
         }
     }
@@ -216,8 +1025,130 @@ public class BlockOutlinesClient implements ClientModInitializer {
         return scanRadius;
     }
     
+    // When the loaded world is scanned the radius only limits drawing, nothing is rescanned
     public void setScanRadius(int radius) {
-        this.scanRadius = Math.max(8, Math.min(64, radius));
+        int clamped = Math.max(8, Math.min(64, radius));
+        if (this.scanRadius != clamped) {
+            this.scanRadius = clamped;
+            retainedCenter = Long.MAX_VALUE;
+            if (!scanLoadedWorld) {
+                rescanVolume();
+            }
+        }
+    }
+    
+    public boolean isScanLoadedWorld() {
+        return scanLoadedWorld;
+    }
+    
+    // Switches between the scan window around the player and scanning every loaded chunk,
+    // the tracked set of one is no use to the other
+    public void setScanLoadedWorld(boolean scanLoadedWorld) {
+        if (this.scanLoadedWorld != scanLoadedWorld) {
+            this.scanLoadedWorld = scanLoadedWorld;
+            clearTracking();
+            if (enabled) {
+                scheduleFullScan(MinecraftClient.getInstance());
+            }
+        }
+    }
+    
+    public int getRetainedColumnCount() {
+        return retainedColumns.size();
+    }
+    
+    public int getQueuedChunkCount() {
+        return chunkScanQueue.size();
+    }
+    
+    public ScanShape getScanShape() {
+        return scanShape;
+    }
+    
+    public void setScanShape(ScanShape shape) {
+        if (this.scanShape != shape) {
+            this.scanShape = shape;
+            if (!scanLoadedWorld) {
+                rescanVolume();
+            }
+        }
+    }
+    
+    public int getScanMinY() {
+        return scanMinY;
+    }
+    
+    public int getScanMaxY() {
+        return scanMaxY;
+    }
+    
+    // Absolute Y band, ScanVolume.NO_MIN_Y / NO_MAX_Y leave that side open
+    public void setScanYBand(int minY, int maxY) {
+        if (this.scanMinY != minY || this.scanMaxY != maxY) {
+            this.scanMinY = minY;
+            this.scanMaxY = maxY;
+            rescanVolume();
+        }
+    }
+    
+    // Results for the old volume are no longer wanted, including a capture still in progress
+    private void rescanVolume() {
+        scanScheduler.cancelAll();
+        pendingCapture = null;
+        chunksLoadedDuringCapture.clear();
+        fullScanPending = false;
+        fullScanRequested = true;
+    }
+    
+    public int getMaxRenderDistance() {
+        return maxRenderDistance;
+    }
+    
+    // How far from the camera outlines are drawn, 0 = no limit. When the loaded world is
+    // scanned the scan radius limits drawing unless a render distance is set.
+    public int getOutlineDrawDistance() {
+        if (scanLoadedWorld && maxRenderDistance == 0) {
+            return scanRadius;
+        }
+        return maxRenderDistance;
+    }
+    
+    public void setMaxRenderDistance(int distance) {
+        this.maxRenderDistance = Math.max(0, Math.min(128, distance));
+    }
+    
+    public boolean isMergeHull() {
+        return mergeHull;
+    }
+    
+    public void setMergeHull(boolean mergeHull) {
+        this.mergeHull = mergeHull;
+        CustomBlockOutlineRenderer.setMergeHull(mergeHull);
+    }
+    
+    public int getTargetFps() {
+        return targetFps;
+    }
+    
+    public void setTargetFps(int fps) {
+        this.targetFps = fps <= 0 ? 0 : Math.max(20, Math.min(240, fps));
+        CustomBlockOutlineRenderer.setTargetFps(this.targetFps);
+    }
+    
+    public boolean isPerformanceOverlayShown() {
+        return performanceOverlayShown;
+    }
+    
+    public void setPerformanceOverlayShown(boolean shown) {
+        this.performanceOverlayShown = shown;
+    }
+    
+    public int getScanBudgetMicros() {
+        return scanBudgetMicros;
+    }
+    
+    public void setScanBudgetMicros(int micros) {
+        this.scanBudgetMicros = micros <= 0 ? 0 : Math.max(250, Math.min(20000, micros));
     }
     
     public int getScanRate() {
@@ -229,11 +1160,13 @@ public class BlockOutlinesClient implements ClientModInitializer {
     }
     
     public int getOutlineColor() {
-        return outlineColor;
+        return targets.get(0).color();
     }
     
     public void setOutlineColor(int color) {
-        this.outlineColor = color & 0xFFFFFF; // Ensure it's a valid RGB color
+        List<OutlineTarget> newTargets = new ArrayList<>(targets);
+        newTargets.set(0, targets.get(0).withColor(color)); // Ensures it's a valid RGB color
+        setTargets(newTargets);
     }
     
     public boolean isAutoColorMode() {
@@ -251,9 +1184,13 @@ public class BlockOutlinesClient implements ClientModInitializer {
     
     private void updateAutoColor() {
         // Extract color using the same logic as the ColorPickerScreen
+        Block targetBlock = getTargetBlock();
         int autoColor = extractBlockColor(targetBlock);
         setOutlineColor(autoColor);
-        
+        logAutoColor(targetBlock, autoColor);
+    }
+    
+    private void logAutoColor(Block targetBlock, int autoColor) {
         // Optional: Log the color change
         LOGGER.info("Auto color updated for {}: #{}", 
             targetBlock.getName().getString(), 
@@ -0,0 +1,85 @@
+package com.blockoutlines.capture;
+
+import com.blockoutlines.BlockOutlinesClient;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+
+// Records a WorldCapture while the player moves around: the chunks loaded when recording
+// starts, every chunk that loads while it runs, every block change and the player position
+// each tick. Client thread only, except for writing the finished capture.
+public class CaptureRecorder {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss");
+
+    private WorldCapture capture;
+    private ClientWorld world;
+    private int ticks;
+
+    public boolean isRecording() {
+        return capture != null;
+    }
+
+    public boolean isRecording(ClientWorld world) {
+        return capture != null && this.world == world;
+    }
+
+    public void start(ClientWorld world, ChunkPos center, int chunkRadius) {
+        this.world = world;
+        this.capture = WorldCapture.record(world, center, chunkRadius);
+        this.ticks = 0;
+    }
+
+    public void tick(Vec3d playerPos) {
+        capture.addSample(ticks++, playerPos.x, playerPos.y, playerPos.z);
+    }
+
+    public void onChunkLoaded(ClientWorld world, WorldChunk chunk) {
+        if (isRecording(world)) {
+            capture.addChunk(world, chunk);
+        }
+    }
+
+    // Stamped with the tick of the next path sample, the one the replay reaches it at
+    public void onBlockChanged(ClientWorld world, BlockPos pos, BlockState state) {
+        if (isRecording(world)) {
+            capture.addChange(ticks, pos.getX(), pos.getY(), pos.getZ(), state);
+        }
+    }
+
+    public int getSectionCount() {
+        return capture == null ? 0 : capture.getSectionCount();
+    }
+
+    // Stops recording and writes the capture into directory on the IO worker. The returned
+    // future completes with the written file.
+    public CompletableFuture<Path> stop(Path directory) {
+        WorldCapture finished = capture;
+        capture = null;
+        world = null;
+
+        Path file = directory.resolve("capture-" + LocalDateTime.now().format(FILE_TIME) + ".bowc");
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                finished.write(file);
+                BlockOutlinesClient.LOGGER.info(
+                    "Wrote world capture {} ({} sections, {} ticks)",
+                    file, finished.getSectionCount(), finished.getPath().size()
+                );
+                return file;
+            } catch (IOException e) {
+                BlockOutlinesClient.LOGGER.error("Failed to write world capture {}", file, e);
+                throw new RuntimeException(e);
+            }
+        }, Util.getIoWorkerExecutor());
+    }
+}
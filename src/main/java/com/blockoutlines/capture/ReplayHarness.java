@@ -0,0 +1,283 @@
+package com.blockoutlines.capture;
+
+import com.blockoutlines.scan.CaptureCursor;
+import com.blockoutlines.scan.ScanShape;
+import com.blockoutlines.scan.ScanStats;
+import com.blockoutlines.scan.ScanVolume;
+import com.blockoutlines.scan.SectionScanner;
+import com.blockoutlines.target.BlockFilter;
+import com.blockoutlines.target.OutlineTarget;
+import com.blockoutlines.target.TargetMatcher;
+import com.blockoutlines.tracking.SectionBitStore;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Replays a WorldCapture through the same capture, scan and tracking code the client runs,
+// without a game client, so scan and tracker performance can be compared between builds on
+// identical input:
+//
+//   ./gradlew replayCapture -Pcapture=<file> [-PreplayArgs="--radius 64 --shape sphere --target ~minecraft:gold_ore"]
+//
+// The recorded path drives a tracked set the way the client keeps it: the scan window follows
+// the player section by section, recorded block changes update the tracked positions at their
+// tick, and a snapshot is published after every tick that changed something. A full scan
+// replaces the tracked set every rate ticks. Churn is how many tracked positions changed
+// between full scans, drift how many the tracked set got wrong by the time the next full scan
+// of the same window landed. Tag targets are not supported, tags are only bound once a
+// server sends them.
+public final class ReplayHarness {
+    private ReplayHarness() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].isBlank()) {
+            System.err.println("Usage: ReplayHarness <capture file> [--radius N] [--rate TICKS] [--shape cube|sphere|cylinder] [--target SPEC]...");
+            System.exit(2);
+        }
+
+        Path file = Path.of(args[0]);
+        int radius = 32;
+        int rate = 20;
+        ScanShape shape = ScanShape.CUBE;
+        List<OutlineTarget> targets = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--radius" -> radius = Integer.parseInt(args[++i]);
+                case "--rate" -> rate = Math.max(1, Integer.parseInt(args[++i]));
+                case "--shape" -> shape = ScanShape.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--target" -> targets.add(new OutlineTarget(BlockFilter.parse(args[++i]), 0xFFFFFF));
+                default -> throw new IllegalArgumentException("Unknown argument '" + args[i] + "'");
+            }
+        }
+
+        // Registries and block states have to exist before the capture can be read
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        if (targets.isEmpty()) {
+            targets.add(new OutlineTarget(BlockFilter.parse("~minecraft:diamond_ore"), 0xFFFFFF));
+        }
+
+        WorldCapture capture = WorldCapture.read(file);
+        int ticks = capture.getPath().size();
+        int changes = capture.getChanges().size();
+        Result result = replay(capture, new TargetMatcher(targets), radius, shape, rate);
+        System.out.printf(
+            "%s: %d sections, %d ticks, %d block changes, radius %d %s, full scan every %d ticks%n",
+            file.getFileName(), capture.getSectionCount(), ticks, changes, radius,
+            shape.getDisplayName().toLowerCase(Locale.ROOT), rate
+        );
+        System.out.println(result);
+    }
+
+    // Applies the recorded block changes to capture as it goes, so a capture replays once
+    public static Result replay(WorldCapture capture, TargetMatcher matcher, int radius, ScanShape shape, int rate) {
+        SectionScanner scanner = new SectionScanner();
+        List<Long> scanNanos = new ArrayList<>();
+        List<Long> windowNanos = new ArrayList<>();
+        List<Long> changeNanos = new ArrayList<>();
+        List<Long> publishNanos = new ArrayList<>();
+        long blocksVisited = 0;
+        long sectionsVisited = 0;
+        long sectionsSkipped = 0;
+        long matches = 0;
+        long churn = 0;
+        long drift = 0;
+        SectionBitStore[] previous = null;
+
+        SectionBitStore[] tracked = null;
+        ScanVolume trackedVolume = null;
+        long trackedSection = 0;
+        List<WorldCapture.BlockChange> changes = capture.getChanges();
+        int nextChange = 0;
+
+        for (WorldCapture.PathSample sample : capture.getPath()) {
+            int x = MathHelper.floor(sample.x());
+            int y = MathHelper.floor(sample.y());
+            int z = MathHelper.floor(sample.z());
+            boolean changed = false;
+
+            // Block changes of this tick reach the world and the tracked set before the scans
+            long changeStart = System.nanoTime();
+            int applied = 0;
+            for (; nextChange < changes.size() && changes.get(nextChange).tick() <= sample.tick(); nextChange++) {
+                WorldCapture.BlockChange change = changes.get(nextChange);
+                capture.applyChange(change);
+                if (tracked != null && trackedVolume.contains(change.x(), change.y(), change.z())) {
+                    changed |= updateTracked(tracked, matcher, change);
+                }
+                applied++;
+            }
+            if (applied > 0) {
+                changeNanos.add(System.nanoTime() - changeStart);
+            }
+
+            // Centered on the player's section like the client's scan window
+            ScanVolume volume = ScanVolume.around(
+                (x & ~15) + 8, (y & ~15) + 8, (z & ~15) + 8, radius, shape, ScanVolume.NO_MIN_Y, ScanVolume.NO_MAX_Y,
+                capture.getBottomSectionCoord() << 4, (capture.getTopSectionCoord() << 4) - 1
+            );
+            long section = ChunkSectionPos.toLong(new BlockPos(x, y, z));
+
+            if (tracked == null || sample.tick() % rate == 0 || !volume.overlaps(trackedVolume)) {
+                // Timed the way the client splits it: capture on the client thread plus the worker scan
+                ScanStats stats = new ScanStats();
+                SectionBitStore[] stores = newStores(matcher.getTargetCount());
+                long start = System.nanoTime();
+                CaptureCursor cursor = new CaptureCursor(capture, volume, matcher, stats);
+                cursor.advance(capture, Long.MAX_VALUE);
+                scanner.scan(cursor.getSections(), matcher, stats, stores, () -> false);
+                scanNanos.add(System.nanoTime() - start);
+
+                blocksVisited += stats.blocksVisited;
+                sectionsVisited += stats.sectionsVisited;
+                sectionsSkipped += stats.getSectionsSkipped();
+                matches += stats.matches;
+                for (int i = 0; i < stores.length; i++) {
+                    churn += previous == null ? stores[i].size() : stores[i].countDifferences(previous[i]);
+                    if (tracked != null && volume.equals(trackedVolume)) {
+                        drift += stores[i].countDifferences(tracked[i]);
+                    }
+                }
+                previous = stores;
+                tracked = new SectionBitStore[stores.length];
+                for (int i = 0; i < stores.length; i++) {
+                    tracked[i] = stores[i].copy();
+                }
+                trackedVolume = volume;
+                trackedSection = section;
+                changed = true;
+            } else if (section != trackedSection) {
+                // A window move: the changed sections are captured and scanned, then replace
+                // their part of the tracked set, as applyCompletedScans does with a WINDOW job
+                ScanStats stats = new ScanStats();
+                SectionBitStore[] results = newStores(matcher.getTargetCount());
+                ScanVolume from = trackedVolume;
+                long start = System.nanoTime();
+                CaptureCursor cursor = new CaptureCursor(capture, from, volume, matcher, stats);
+                cursor.advance(capture, Long.MAX_VALUE);
+                scanner.scan(cursor.getSections(), matcher, stats, results, () -> false);
+                for (int i = 0; i < tracked.length; i++) {
+                    tracked[i].removeSectionsIf(key -> {
+                        int sx = ChunkSectionPos.unpackX(key);
+                        int sy = ChunkSectionPos.unpackY(key);
+                        int sz = ChunkSectionPos.unpackZ(key);
+                        return !from.coversSection(sx, sy, sz) || !volume.coversSection(sx, sy, sz);
+                    });
+                    tracked[i].putAll(results[i]);
+                }
+                windowNanos.add(System.nanoTime() - start);
+                trackedVolume = volume;
+                trackedSection = section;
+                changed = true;
+            }
+
+            if (changed) {
+                long start = System.nanoTime();
+                for (SectionBitStore store : tracked) {
+                    store.snapshot(0xFFFFFF);
+                }
+                publishNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        return new Result(
+            Timings.of(scanNanos), Timings.of(windowNanos), Timings.of(changeNanos), Timings.of(publishNanos),
+            blocksVisited, sectionsVisited, sectionsSkipped, matches, churn, drift
+        );
+    }
+
+    // The same update the client makes for a block change inside the scan window
+    private static boolean updateTracked(SectionBitStore[] tracked, TargetMatcher matcher, WorldCapture.BlockChange change) {
+        int target = matcher.targetOf(change.state());
+        boolean changed = false;
+        for (int i = 0; i < tracked.length; i++) {
+            if (i == target) {
+                changed |= tracked[i].add(change.x(), change.y(), change.z());
+            } else {
+                changed |= tracked[i].remove(change.x(), change.y(), change.z());
+            }
+        }
+        return changed;
+    }
+
+    private static SectionBitStore[] newStores(int count) {
+        SectionBitStore[] stores = new SectionBitStore[count];
+        for (int i = 0; i < count; i++) {
+            stores[i] = new SectionBitStore();
+        }
+        return stores;
+    }
+
+    public record Timings(long[] sortedNanos) {
+        static Timings of(List<Long> nanos) {
+            long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            return new Timings(sorted);
+        }
+
+        public int count() {
+            return sortedNanos.length;
+        }
+
+        public double percentileMillis(double percentile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+        }
+
+        public double meanMillis() {
+            return sortedNanos.length == 0 ? 0 : Arrays.stream(sortedNanos).average().orElse(0) / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                meanMillis(), percentileMillis(50), percentileMillis(99), percentileMillis(100)
+            );
+        }
+    }
+
+    public record Result(
+        Timings scans,
+        Timings windowMoves,
+        Timings blockChanges,
+        Timings publishes,
+        long blocksVisited,
+        long sectionsVisited,
+        long sectionsSkipped,
+        long matches,
+        long churn,
+        long drift
+    ) {
+        @Override
+        public String toString() {
+            int scans = Math.max(1, scans().count());
+            return String.format(
+                "%d full scans: %s%n"
+                    + "per scan: %d blocks in %d sections visited, %d sections skipped, %d matches%n"
+                    + "%d window moves: %s%n"
+                    + "%d ticks with block changes: %s%n"
+                    + "%d snapshots published: %s%n"
+                    + "churn: %d positions changed over the path, drift: %d positions wrong at the next full scan",
+                scans().count(), scans(),
+                blocksVisited / scans, sectionsVisited / scans, sectionsSkipped / scans, matches / scans,
+                windowMoves.count(), windowMoves,
+                blockChanges.count(), blockChanges,
+                publishes.count(), publishes,
+                churn, drift
+            );
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.blockoutlines.capture;
+
+import com.blockoutlines.scan.SectionScanner;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.state.property.Property;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Loaded chunk sections plus the player's path and the block changes seen while recording,
+// saved so scans can be replayed without a game client (see ReplayHarness). Sections are
+// copied when recorded, so a capture can be written from any thread once recording has stopped.
+//
+// File format, gzip compressed, big endian:
+//   int magic "BOWC", short version
+//   int bottom section y, int top section y (exclusive)
+//   int column count, per column: int chunk x, int chunk z
+//   int section count, per section:
+//     int section x, y, z
+//     short palette size, per entry: utf block id, byte property count, utf name + utf value each
+//     byte bits per entry, short long count, longs holding the 4096 palette indices in
+//     y << 8 | z << 4 | x order, 64 / bits entries per long, never spanning two longs
+//   int sample count, per sample: int tick, double x, y, z
+//   int change count, per change: int tick, int x, y, z, then the new state as in the palette
+//   (version 2 on, version 1 captures have no changes)
+public final class WorldCapture implements SectionScanner.SectionSource {
+    private static final int MAGIC = 0x424F5743;
+    private static final short VERSION = 2;
+    private static final int CELLS = 4096;
+
+    public record PathSample(int tick, double x, double y, double z) {}
+
+    public record BlockChange(int tick, int x, int y, int z, BlockState state) {}
+
+    private final int bottomSectionY;
+    private final int topSectionY;
+    private final LongOpenHashSet columns = new LongOpenHashSet();
+    private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>();
+    private final List<PathSample> path = new ArrayList<>();
+    private final List<BlockChange> changes = new ArrayList<>();
+
+    public WorldCapture(int bottomSectionY, int topSectionY) {
+        this.bottomSectionY = bottomSectionY;
+        this.topSectionY = topSectionY;
+    }
+
+    // Records every loaded chunk within chunkRadius of the center chunk
+    public static WorldCapture record(World world, ChunkPos center, int chunkRadius) {
+        WorldCapture capture = new WorldCapture(world.getBottomSectionCoord(), world.getTopSectionCoord());
+        for (int cx = center.x - chunkRadius; cx <= center.x + chunkRadius; cx++) {
+            for (int cz = center.z - chunkRadius; cz <= center.z + chunkRadius; cz++) {
+                WorldChunk chunk = world.getChunkManager().getWorldChunk(cx, cz, false);
+                if (chunk != null) {
+                    capture.addChunk(world, chunk);
+                }
+            }
+        }
+        return capture;
+    }
+
+    // Adds or replaces one chunk column. Must run on the thread that owns the world.
+    public void addChunk(World world, WorldChunk chunk) {
+        ChunkPos pos = chunk.getPos();
+        columns.add(pos.toLong());
+        ChunkSection[] chunkSections = chunk.getSectionArray();
+        for (int i = 0; i < chunkSections.length; i++) {
+            int sectionY = world.sectionIndexToCoord(i);
+            long key = ChunkSectionPos.asLong(pos.x, sectionY, pos.z);
+            ChunkSection section = chunkSections[i];
+            if (section == null || section.isEmpty()) {
+                sections.remove(key);
+            } else {
+                sections.put(key, section.getBlockStateContainer().copy());
+            }
+        }
+    }
+
+    public void addSample(int tick, double x, double y, double z) {
+        path.add(new PathSample(tick, x, y, z));
+    }
+
+    public List<PathSample> getPath() {
+        return path;
+    }
+
+    // Changes are recorded after the sections they apply to were copied, in tick order
+    public void addChange(int tick, int x, int y, int z, BlockState state) {
+        changes.add(new BlockChange(tick, x, y, z, state));
+    }
+
+    public List<BlockChange> getChanges() {
+        return changes;
+    }
+
+    // Writes a recorded change into the captured sections, as a replay reaches its tick.
+    // Changes in columns that were never captured are ignored.
+    public void applyChange(BlockChange change) {
+        int sectionX = ChunkSectionPos.getSectionCoord(change.x());
+        int sectionY = ChunkSectionPos.getSectionCoord(change.y());
+        int sectionZ = ChunkSectionPos.getSectionCoord(change.z());
+        if (!isColumnLoaded(sectionX, sectionZ) || sectionY < bottomSectionY || sectionY >= topSectionY) {
+            return;
+        }
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        PalettedContainer<BlockState> blocks = sections.get(key);
+        if (blocks == null) {
+            if (change.state().isAir()) {
+                return;
+            }
+            blocks = emptySection();
+            sections.put(key, blocks);
+        }
+        blocks.set(change.x() & 15, change.y() & 15, change.z() & 15, change.state());
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    @Override
+    public int getBottomSectionCoord() {
+        return bottomSectionY;
+    }
+
+    @Override
+    public int getTopSectionCoord() {
+        return topSectionY;
+    }
+
+    @Override
+    public boolean isColumnLoaded(int sectionX, int sectionZ) {
+        return columns.contains(ChunkPos.toLong(sectionX, sectionZ));
+    }
+
+    @Override
+    public PalettedContainer<BlockState> getSection(int sectionX, int sectionY, int sectionZ) {
+        return sections.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(bottomSectionY);
+            out.writeInt(topSectionY);
+
+            out.writeInt(columns.size());
+            LongIterator columnIterator = columns.iterator();
+            while (columnIterator.hasNext()) {
+                long column = columnIterator.nextLong();
+                out.writeInt(ChunkPos.getPackedX(column));
+                out.writeInt(ChunkPos.getPackedZ(column));
+            }
+
+            out.writeInt(sections.size());
+            for (Long2ObjectOpenHashMap.Entry<PalettedContainer<BlockState>> entry : sections.long2ObjectEntrySet()) {
+                long key = entry.getLongKey();
+                out.writeInt(ChunkSectionPos.unpackX(key));
+                out.writeInt(ChunkSectionPos.unpackY(key));
+                out.writeInt(ChunkSectionPos.unpackZ(key));
+                writeSection(out, entry.getValue());
+            }
+
+            out.writeInt(path.size());
+            for (PathSample sample : path) {
+                out.writeInt(sample.tick());
+                out.writeDouble(sample.x());
+                out.writeDouble(sample.y());
+                out.writeDouble(sample.z());
+            }
+
+            out.writeInt(changes.size());
+            for (BlockChange change : changes) {
+                out.writeInt(change.tick());
+                out.writeInt(change.x());
+                out.writeInt(change.y());
+                out.writeInt(change.z());
+                writeState(out, change.state());
+            }
+        }
+    }
+
+    public static WorldCapture read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a block outlines world capture: " + file);
+            }
+            short version = in.readShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported capture version " + version + " in " + file);
+            }
+
+            WorldCapture capture = new WorldCapture(in.readInt(), in.readInt());
+            int columnCount = in.readInt();
+            for (int i = 0; i < columnCount; i++) {
+                capture.columns.add(ChunkPos.toLong(in.readInt(), in.readInt()));
+            }
+
+            int sectionCount = in.readInt();
+            for (int i = 0; i < sectionCount; i++) {
+                long key = ChunkSectionPos.asLong(in.readInt(), in.readInt(), in.readInt());
+                capture.sections.put(key, readSection(in));
+            }
+
+            int sampleCount = in.readInt();
+            for (int i = 0; i < sampleCount; i++) {
+                capture.addSample(in.readInt(), in.readDouble(), in.readDouble(), in.readDouble());
+            }
+
+            if (version >= 2) {
+                int changeCount = in.readInt();
+                for (int i = 0; i < changeCount; i++) {
+                    capture.addChange(in.readInt(), in.readInt(), in.readInt(), in.readInt(), readState(in));
+                }
+            }
+            return capture;
+        }
+    }
+
+    private static void writeSection(DataOutputStream out, PalettedContainer<BlockState> blocks) throws IOException {
+        // A palette of our own keeps the format independent of the game's palette classes
+        Reference2IntOpenHashMap<BlockState> indexOf = new Reference2IntOpenHashMap<>();
+        List<BlockState> palette = new ArrayList<>();
+        int[] indices = new int[CELLS];
+        for (int index = 0; index < CELLS; index++) {
+            BlockState state = blocks.get(index & 15, index >>> 8, (index >>> 4) & 15);
+            int paletteIndex = indexOf.getOrDefault(state, -1);
+            if (paletteIndex < 0) {
+                paletteIndex = palette.size();
+                indexOf.put(state, paletteIndex);
+                palette.add(state);
+            }
+            indices[index] = paletteIndex;
+        }
+
+        out.writeShort(palette.size());
+        for (BlockState state : palette) {
+            writeState(out, state);
+        }
+
+        int bits = bitsFor(palette.size());
+        int perLong = 64 / bits;
+        long[] packed = new long[(CELLS + perLong - 1) / perLong];
+        for (int index = 0; index < CELLS; index++) {
+            packed[index / perLong] |= (long) indices[index] << ((index % perLong) * bits);
+        }
+        out.writeByte(bits);
+        out.writeShort(packed.length);
+        for (long word : packed) {
+            out.writeLong(word);
+        }
+    }
+
+    private static PalettedContainer<BlockState> readSection(DataInputStream in) throws IOException {
+        BlockState[] palette = new BlockState[in.readUnsignedShort()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = readState(in);
+        }
+
+        int bits = in.readUnsignedByte();
+        int perLong = 64 / bits;
+        long mask = (1L << bits) - 1;
+        long[] packed = new long[in.readUnsignedShort()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = in.readLong();
+        }
+
+        PalettedContainer<BlockState> blocks = emptySection();
+        for (int index = 0; index < CELLS; index++) {
+            int paletteIndex = (int) ((packed[index / perLong] >>> ((index % perLong) * bits)) & mask);
+            BlockState state = palette[paletteIndex];
+            if (!state.isAir()) {
+                blocks.set(index & 15, index >>> 8, (index >>> 4) & 15, state);
+            }
+        }
+        return blocks;
+    }
+
+    private static PalettedContainer<BlockState> emptySection() {
+        return new PalettedContainer<>(
+            Block.STATE_IDS, Blocks.AIR.getDefaultState(), PalettedContainer.PaletteProvider.BLOCK_STATE);
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+    }
+
+    private static void writeState(DataOutputStream out, BlockState state) throws IOException {
+        out.writeUTF(Registries.BLOCK.getId(state.getBlock()).toString());
+        out.writeByte(state.getProperties().size());
+        for (Property<?> property : state.getProperties()) {
+            out.writeUTF(property.getName());
+            out.writeUTF(valueName(state, property));
+        }
+    }
+
+    private static BlockState readState(DataInputStream in) throws IOException {
+        Block block = Registries.BLOCK.get(Identifier.of(in.readUTF()));
+        BlockState state = block.getDefaultState();
+        int propertyCount = in.readUnsignedByte();
+        for (int i = 0; i < propertyCount; i++) {
+            String name = in.readUTF();
+            String value = in.readUTF();
+            Property<?> property = block.getStateManager().getProperty(name);
+            if (property != null) {
+                state = withValue(state, property, value);
+            }
+        }
+        return state;
+    }
+
+    private static <T extends Comparable<T>> String valueName(BlockState state, Property<T> property) {
+        return property.name(state.get(property));
+    }
+
+    private static <T extends Comparable<T>> BlockState withValue(BlockState state, Property<T> property, String value) {
+        return property.parse(value).map(parsed -> state.with(property, parsed)).orElse(state);
+    }
+}
@@ -1,12 +1,15 @@
 package com.blockoutlines.client.gui;
 
 import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.scan.ScanVolume;
 import net.minecraft.block.Block;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.tooltip.Tooltip;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.SliderWidget;
+import net.minecraft.client.world.ClientWorld;
 import net.minecraft.text.Text;
 
 public class BlockOutlinesConfigScreen extends Screen {
@@ -16,6 +19,14 @@ public class BlockOutlinesConfigScreen extends Screen {
     private int scanRadius;
     private ButtonWidget toggleButton;
     private SliderWidget radiusSlider;
+    private int renderDistance;
+    private int targetFps;
+    private int scanBudgetMicros;
+    private int scanMinY;
+    private int scanMaxY;
+    // Range of the Y band sliders, the loaded world's build limits
+    private final int worldBottomY;
+    private final int worldTopY;
 
     public BlockOutlinesConfigScreen(Screen parent, BlockOutlinesClient modClient) {
         super(Text.literal("Block Outlines Configuration"));
@@ -23,6 +34,15 @@ public class BlockOutlinesConfigScreen extends Screen {
         this.modClient = modClient;
         this.outlinesEnabled = modClient.isOutlinesEnabled();
         this.scanRadius = modClient.getScanRadius();
+        this.renderDistance = modClient.getMaxRenderDistance();
+        this.targetFps = modClient.getTargetFps();
+        this.scanBudgetMicros = modClient.getScanBudgetMicros();
+        this.scanMinY = modClient.getScanMinY();
+        this.scanMaxY = modClient.getScanMaxY();
+        ClientWorld world = MinecraftClient.getInstance().world;
+        // The overworld's limits when the screen is opened from the title screen
+        this.worldBottomY = world != null ? world.getBottomY() : -64;
+        this.worldTopY = world != null ? world.getTopYInclusive() + 1 : 320;
     }
 
     @Override
@@ -38,12 +58,27 @@ public class BlockOutlinesConfigScreen extends Screen {
                 // Apply immediately
                 modClient.setOutlinesEnabled(outlinesEnabled);
             }
-        ).dimensions(this.width / 2 - 100, this.height / 2 - 90, 200, 20).build();
+        ).dimensions(this.width / 2 - 100, this.height / 2 - 90, 98, 20).build();
         this.addDrawableChild(toggleButton);
 
+        // Scan range: the window around the player, or every loaded chunk with the radius only limiting drawing
+        this.addDrawableChild(ButtonWidget.builder(
+            scanRangeText(modClient.isScanLoadedWorld()),
+            button -> {
+                modClient.setScanLoadedWorld(!modClient.isScanLoadedWorld());
+                button.setMessage(scanRangeText(modClient.isScanLoadedWorld()));
+            }
+        ).dimensions(this.width / 2 + 2, this.height / 2 - 90, 98, 20)
+            .tooltip(Tooltip.of(Text.literal("Loaded: every chunk is scanned once as it loads and kept, the radius only limits how far outlines are drawn.")))
+            .build());
+
         // Target block selector button
         Block currentTarget = modClient.getTargetBlock();
         String blockName = currentTarget.getName().getString();
+        int extraTargets = modClient.getTargets().size() - 1;
+        if (extraTargets > 0) {
+            blockName += " +" + extraTargets;
+        }
         this.addDrawableChild(ButtonWidget.builder(
             Text.literal("Target: " + blockName),
             button -> MinecraftClient.getInstance().setScreen(new BlockSelectorScreen(this, modClient))
@@ -51,7 +86,7 @@ public class BlockOutlinesConfigScreen extends Screen {
 
         // Scan radius slider
         this.radiusSlider = new SliderWidget(
-            this.width / 2 - 100, this.height / 2 - 30, 200, 20,
+            this.width / 2 - 100, this.height / 2 - 30, 98, 20,
             Text.literal("Scan Radius: " + scanRadius), 
             (scanRadius - 16) / 48.0
         ) {
@@ -80,17 +115,197 @@ public class BlockOutlinesConfigScreen extends Screen {
         };
         this.addDrawableChild(radiusSlider);
 
+        // Scan shape, cycles cube, sphere and cylinder
+        this.addDrawableChild(ButtonWidget.builder(
+            Text.literal("Shape: " + modClient.getScanShape().getDisplayName()),
+            button -> {
+                modClient.setScanShape(modClient.getScanShape().next());
+                button.setMessage(Text.literal("Shape: " + modClient.getScanShape().getDisplayName()));
+            }
+        ).dimensions(this.width / 2 + 2, this.height / 2 - 30, 98, 20)
+            .tooltip(Tooltip.of(Text.literal("Sphere and cylinder scan fewer blocks than the cube of the same radius.")))
+            .build());
+
         // Color picker button
         this.addDrawableChild(ButtonWidget.builder(
             Text.literal("Outline Color"),
             button -> MinecraftClient.getInstance().setScreen(new ColorPickerScreen(this, modClient))
-        ).dimensions(this.width / 2 - 100, this.height / 2, 200, 20).build());
+        ).dimensions(this.width / 2 - 100, this.height / 2, 98, 20).build());
+
+        // Client thread time a full scan may use per tick, 0 captures everything at once
+        this.addDrawableChild(new SliderWidget(
+            this.width / 2 + 2, this.height / 2, 98, 20,
+            scanBudgetText(scanBudgetMicros),
+            Math.min(1.0, scanBudgetMicros / 5000.0)
+        ) {
+            @Override
+            protected void updateMessage() {
+                BlockOutlinesConfigScreen.this.scanBudgetMicros = sliderToBudget(this.value);
+                this.setMessage(scanBudgetText(BlockOutlinesConfigScreen.this.scanBudgetMicros));
+            }
+
+            @Override
+            protected void applyValue() {
+                BlockOutlinesConfigScreen.this.scanBudgetMicros = sliderToBudget(this.value);
+                modClient.setScanBudgetMicros(BlockOutlinesConfigScreen.this.scanBudgetMicros);
+            }
+        }).setTooltip(Tooltip.of(Text.literal("Time a scan may take per tick. Lower is smoother, scans take more ticks.")));
+
+        // Render distance slider, 0 draws everything within the scan range
+        this.addDrawableChild(new SliderWidget(
+            this.width / 2 - 100, this.height / 2 + 30, 98, 20,
+            renderDistanceText(renderDistance),
+            renderDistance / 128.0
+        ) {
+            @Override
+            protected void updateMessage() {
+                BlockOutlinesConfigScreen.this.renderDistance = (int) (this.value * 16) * 8;
+                this.setMessage(renderDistanceText(BlockOutlinesConfigScreen.this.renderDistance));
+            }
+
+            @Override
+            protected void applyValue() {
+                BlockOutlinesConfigScreen.this.renderDistance = (int) (this.value * 16) * 8;
+                modClient.setMaxRenderDistance(BlockOutlinesConfigScreen.this.renderDistance);
+            }
+        });
+
+        // Target FPS slider for the adaptive render budget, 0 turns the budget off
+        this.addDrawableChild(new SliderWidget(
+            this.width / 2 + 2, this.height / 2 + 30, 98, 20,
+            targetFpsText(targetFps),
+            targetFps == 0 ? 0 : (targetFps - 20) / 220.0 * 0.95 + 0.05
+        ) {
+            @Override
+            protected void updateMessage() {
+                BlockOutlinesConfigScreen.this.targetFps = sliderToFps(this.value);
+                this.setMessage(targetFpsText(BlockOutlinesConfigScreen.this.targetFps));
+            }
+
+            @Override
+            protected void applyValue() {
+                BlockOutlinesConfigScreen.this.targetFps = sliderToFps(this.value);
+                modClient.setTargetFps(BlockOutlinesConfigScreen.this.targetFps);
+            }
+        });
+
+        // Outline mode: merged shells for full cubes or the plain block models
+        this.addDrawableChild(ButtonWidget.builder(
+            outlineModeText(modClient.isMergeHull()),
+            button -> {
+                modClient.setMergeHull(!modClient.isMergeHull());
+                button.setMessage(outlineModeText(modClient.isMergeHull()));
+            }
+        ).dimensions(this.width / 2 - 100, this.height / 2 + 60, 98, 20)
+            .tooltip(Tooltip.of(Text.literal("Merged: one shell per cluster of full blocks. Models: every block drawn on its own.")))
+            .build());
+
+        // Performance overlay: scan and render cost on screen
+        this.addDrawableChild(ButtonWidget.builder(
+            overlayText(modClient.isPerformanceOverlayShown()),
+            button -> {
+                modClient.setPerformanceOverlayShown(!modClient.isPerformanceOverlayShown());
+                button.setMessage(overlayText(modClient.isPerformanceOverlayShown()));
+            }
+        ).dimensions(this.width / 2 + 2, this.height / 2 + 60, 98, 20)
+            .tooltip(Tooltip.of(Text.literal("Shows scan and outline render times, also on the F3 screen.")))
+            .build());
+
+        // Absolute Y band, all the way left (min) or right (max) leaves that side open
+        this.addDrawableChild(new SliderWidget(
+            this.width / 2 - 100, this.height / 2 + 90, 65, 20,
+            minYText(scanMinY),
+            scanMinY == ScanVolume.NO_MIN_Y ? 0 : yToSlider(scanMinY)
+        ) {
+            @Override
+            protected void updateMessage() {
+                BlockOutlinesConfigScreen.this.scanMinY = this.value <= 0 ? ScanVolume.NO_MIN_Y : sliderToY(this.value);
+                this.setMessage(minYText(BlockOutlinesConfigScreen.this.scanMinY));
+            }
+
+            @Override
+            protected void applyValue() {
+                modClient.setScanYBand(BlockOutlinesConfigScreen.this.scanMinY, BlockOutlinesConfigScreen.this.scanMaxY);
+            }
+        }).setTooltip(Tooltip.of(Text.literal("Lowest Y scanned, such as -64 for diamonds.")));
+
+        this.addDrawableChild(new SliderWidget(
+            this.width / 2 - 33, this.height / 2 + 90, 65, 20,
+            maxYText(scanMaxY),
+            scanMaxY == ScanVolume.NO_MAX_Y ? 1 : yToSlider(scanMaxY)
+        ) {
+            @Override
+            protected void updateMessage() {
+                BlockOutlinesConfigScreen.this.scanMaxY = this.value >= 1 ? ScanVolume.NO_MAX_Y : sliderToY(this.value);
+                this.setMessage(maxYText(BlockOutlinesConfigScreen.this.scanMaxY));
+            }
+
+            @Override
+            protected void applyValue() {
+                modClient.setScanYBand(BlockOutlinesConfigScreen.this.scanMinY, BlockOutlinesConfigScreen.this.scanMaxY);
+            }
+        }).setTooltip(Tooltip.of(Text.literal("Highest Y scanned, such as 16 for diamonds.")));
 
         // Close button (settings are applied immediately)
         this.addDrawableChild(ButtonWidget.builder(
             Text.literal("Close"),
             button -> this.close()
-        ).dimensions(this.width / 2 - 50, this.height / 2 + 30, 100, 20).build());
+        ).dimensions(this.width / 2 + 34, this.height / 2 + 90, 66, 20).build());
+    }
+
+    // Y in steps of 8 between the world's bottom and top
+    private int sliderToY(double value) {
+        int steps = Math.max(1, (worldTopY - worldBottomY) / 8);
+        return Math.min(worldTopY, worldBottomY + (int) Math.round(value * steps) * 8);
+    }
+
+    private double yToSlider(int y) {
+        return Math.max(0, Math.min(1, (y - worldBottomY) / (double) (worldTopY - worldBottomY)));
+    }
+
+    private static Text minYText(int y) {
+        return Text.literal("Min Y: " + (y == ScanVolume.NO_MIN_Y ? "Off" : y));
+    }
+
+    private static Text maxYText(int y) {
+        return Text.literal("Max Y: " + (y == ScanVolume.NO_MAX_Y ? "Off" : y));
+    }
+
+    // 0.25 ms steps up to 5 ms, all the way left is no limit
+    private static int sliderToBudget(double value) {
+        return (int) Math.round(value * 20) * 250;
+    }
+
+    private static Text scanBudgetText(int micros) {
+        return Text.literal("Budget: " + (micros == 0 ? "Off" : String.format("%.2f ms", micros / 1000.0)));
+    }
+
+    // The first 5% of the slider is "off", the rest covers 20 to 240 fps in steps of 10
+    private static int sliderToFps(double value) {
+        if (value < 0.05) {
+            return 0;
+        }
+        return 20 + (int) Math.round((value - 0.05) / 0.95 * 22) * 10;
+    }
+
+    private static Text targetFpsText(int fps) {
+        return Text.literal("Target FPS: " + (fps == 0 ? "Off" : fps));
+    }
+
+    private static Text outlineModeText(boolean mergeHull) {
+        return Text.literal("Mode: " + (mergeHull ? "Merged" : "Models"));
+    }
+
+    private static Text scanRangeText(boolean loadedWorld) {
+        return Text.literal("Range: " + (loadedWorld ? "Loaded" : "Radius"));
+    }
+
+    private static Text overlayText(boolean shown) {
+        return Text.literal("Overlay: " + (shown ? "On" : "Off"));
+    }
+
+    private static Text renderDistanceText(int distance) {
+        return Text.literal("Distance: " + (distance == 0 ? "All" : distance));
     }
 
     @Override
@@ -0,0 +1,257 @@
+package com.blockoutlines.client.gui;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.block.Block;
+import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
+import net.minecraft.item.Items;
+import net.minecraft.registry.Registries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Search over every block that has an item, for BlockSelectorScreen. Ids and names are
+// lowercased once and every 1 to 3 character substring of them is indexed, so a query
+// looks up its candidates instead of testing each block. Built on first use and dropped
+// whenever resources reload, which is also when a language change renames the blocks.
+// Client thread only.
+public final class BlockSearchIndex {
+    private static final int MAX_GRAM = 3;
+    private static final int[] NONE = new int[0];
+    // Fuzzy matches only fill up results smaller than one screen of the selector grid
+    private static final int FUZZY_BELOW = 54;
+    // Rank buckets, best first: exact name, name prefix, word or id path prefix, name, id
+    private static final int RANKS = 5;
+
+    private static BlockSearchIndex instance;
+
+    private final List<Block> blocks;
+    private final String[] ids;
+    private final String[] names;
+    // Sorted block indices per substring, keyed by gramKey
+    private final Long2ObjectOpenHashMap<int[]> grams = new Long2ObjectOpenHashMap<>();
+
+    // The last query and its substring matches, a query that extends it only filters those
+    private String lastQuery = "";
+    private int[] lastMatches;
+
+    private BlockSearchIndex() {
+        List<Block> placeable = new ArrayList<>();
+        for (Block block : Registries.BLOCK) {
+            Item item = block.asItem();
+            if (item != Items.AIR && item instanceof BlockItem) {
+                placeable.add(block);
+            }
+        }
+        this.blocks = List.copyOf(placeable);
+        this.ids = new String[blocks.size()];
+        this.names = new String[blocks.size()];
+
+        Long2ObjectOpenHashMap<IntArrayList> postings = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            Block block = blocks.get(i);
+            ids[i] = Registries.BLOCK.getId(block).toString().toLowerCase(Locale.ROOT);
+            names[i] = block.getName().getString().toLowerCase(Locale.ROOT);
+            addGrams(postings, ids[i], i);
+            addGrams(postings, names[i], i);
+        }
+        ObjectIterator<Long2ObjectMap.Entry<IntArrayList>> iterator = postings.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<IntArrayList> entry = iterator.next();
+            grams.put(entry.getLongKey(), entry.getValue().toIntArray());
+        }
+    }
+
+    public static BlockSearchIndex get() {
+        if (instance == null) {
+            instance = new BlockSearchIndex();
+        }
+        return instance;
+    }
+
+    public static void invalidate() {
+        instance = null;
+    }
+
+    // Every indexed block in registry order
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    // Blocks whose id or name contains the query, best match first, followed by fuzzy
+    // matches (the query's letters in order) when there are only a few of those
+    public List<Block> search(String query) {
+        String search = query.toLowerCase(Locale.ROOT).trim();
+        if (search.isEmpty()) {
+            lastQuery = "";
+            lastMatches = null;
+            return blocks;
+        }
+
+        int[] matches = lastMatches != null && search.startsWith(lastQuery)
+            ? filter(lastMatches, search)
+            : lookup(search);
+        lastQuery = search;
+        lastMatches = matches;
+
+        List<Block> result = new ArrayList<>(matches.length);
+        rank(search, matches, result);
+        if (matches.length < FUZZY_BELOW && search.length() > 1) {
+            addFuzzy(search, matches, result);
+        }
+        return result;
+    }
+
+    private int[] lookup(String search) {
+        if (search.length() <= MAX_GRAM) {
+            // Every substring this short is indexed, so its postings are exactly the matches
+            return grams.getOrDefault(gramKey(search, 0, search.length()), NONE);
+        }
+
+        // Candidates hold every trigram of the query, rarest first keeps the intersection small
+        int[][] lists = new int[search.length() - MAX_GRAM + 1][];
+        for (int start = 0; start < lists.length; start++) {
+            lists[start] = grams.getOrDefault(gramKey(search, start, MAX_GRAM), NONE);
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] candidates = lists[0];
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists[i]);
+        }
+        return filter(candidates, search);
+    }
+
+    private int[] filter(int[] candidates, String search) {
+        int[] kept = new int[candidates.length];
+        int count = 0;
+        for (int index : candidates) {
+            if (names[index].contains(search) || ids[index].contains(search)) {
+                kept[count++] = index;
+            }
+        }
+        return count == kept.length ? kept : Arrays.copyOf(kept, count);
+    }
+
+    // Stable bucket sort, registry order within a rank
+    private void rank(String search, int[] matches, List<Block> result) {
+        IntArrayList[] buckets = new IntArrayList[RANKS];
+        for (int rank = 0; rank < RANKS; rank++) {
+            buckets[rank] = new IntArrayList();
+        }
+        for (int index : matches) {
+            buckets[rankOf(index, search)].add(index);
+        }
+        for (IntArrayList bucket : buckets) {
+            for (int i = 0; i < bucket.size(); i++) {
+                result.add(blocks.get(bucket.getInt(i)));
+            }
+        }
+    }
+
+    private int rankOf(int index, String search) {
+        String name = names[index];
+        int at = name.indexOf(search);
+        if (at == 0) {
+            return name.length() == search.length() ? 0 : 1;
+        }
+        if (at > 0 && name.charAt(at - 1) == ' ') {
+            return 2;
+        }
+        String id = ids[index];
+        if (id.startsWith(search, id.indexOf(':') + 1)) {
+            return 2;
+        }
+        return at > 0 ? 3 : 4;
+    }
+
+    // Blocks holding every letter of the query, ordered by how few characters the letters
+    // are spread over. The single letter postings narrow the candidates down first.
+    private void addFuzzy(String search, int[] matches, List<Block> result) {
+        int[] candidates = null;
+        for (int i = 0; i < search.length(); i++) {
+            if (search.indexOf(search.charAt(i)) != i) {
+                continue;
+            }
+            int[] postings = grams.getOrDefault(gramKey(search, i, 1), NONE);
+            candidates = candidates == null ? postings : intersect(candidates, postings);
+            if (candidates.length == 0) {
+                return;
+            }
+        }
+
+        List<long[]> scored = new ArrayList<>();
+        for (int index : candidates) {
+            if (Arrays.binarySearch(matches, index) >= 0) {
+                continue;
+            }
+            int spread = Math.min(spread(names[index], search), spread(ids[index], search));
+            if (spread != Integer.MAX_VALUE) {
+                scored.add(new long[] {spread, index});
+            }
+        }
+        scored.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for (long[] entry : scored) {
+            result.add(blocks.get((int) entry[1]));
+        }
+    }
+
+    // Characters skipped between the first and last letter when the query's letters are
+    // found in order, Integer.MAX_VALUE when they are not
+    private static int spread(String text, String search) {
+        int first = text.indexOf(search.charAt(0));
+        if (first < 0) {
+            return Integer.MAX_VALUE;
+        }
+        int at = first;
+        for (int i = 1; i < search.length(); i++) {
+            at = text.indexOf(search.charAt(i), at + 1);
+            if (at < 0) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        return at - first + 1 - search.length();
+    }
+
+    private static void addGrams(Long2ObjectOpenHashMap<IntArrayList> postings, String text, int index) {
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int start = 0; start + length <= text.length(); start++) {
+                IntArrayList list = postings.computeIfAbsent(gramKey(text, start, length), key -> new IntArrayList());
+                // Blocks are added in index order, so a repeat can only be the last entry
+                if (list.isEmpty() || list.getInt(list.size() - 1) != index) {
+                    list.add(index);
+                }
+            }
+        }
+    }
+
+    // The length and up to three 16 bit chars, distinct for every substring of any length
+    private static long gramKey(String text, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = key << 16 | text.charAt(start + i);
+        }
+        return key;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -1,28 +1,26 @@
 package com.blockoutlines.client.gui;
 
 import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.target.OutlineTarget;
 import net.minecraft.block.Block;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.TextFieldWidget;
-import net.minecraft.item.BlockItem;
-import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.registry.Registries;
 import net.minecraft.text.Text;
-import net.minecraft.util.Identifier;
+import org.lwjgl.glfw.GLFW;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class BlockSelectorScreen extends Screen {
     private final Screen parent;
     private final BlockOutlinesClient modClient;
     private TextFieldWidget searchField;
-    private List<Block> allBlocks;
+    private final BlockSearchIndex searchIndex;
     private List<Block> filteredBlocks;
     private Block selectedBlock;
     private int scrollOffset = 0;
@@ -37,15 +35,9 @@ public class BlockSelectorScreen extends Screen {
         this.modClient = modClient;
         this.selectedBlock = modClient.getTargetBlock();
         
-        // Get all blocks that have items (can be placed/obtained)
-        this.allBlocks = new ArrayList<>();
-        for (Block block : Registries.BLOCK) {
-            Item item = block.asItem();
-            if (item != null && item != net.minecraft.item.Items.AIR && item instanceof BlockItem) {
-                allBlocks.add(block);
-            }
-        }
-        this.filteredBlocks = new ArrayList<>(allBlocks);
+        // All blocks that have items (can be placed/obtained), indexed once for searching
+        this.searchIndex = BlockSearchIndex.get();
+        this.filteredBlocks = searchIndex.getBlocks();
     }
 
     @Override
@@ -68,14 +60,7 @@ public class BlockSelectorScreen extends Screen {
     }
 
     private void onSearchChanged(String search) {
-        String searchLower = search.toLowerCase();
-        this.filteredBlocks = allBlocks.stream()
-                .filter(block -> {
-                    Identifier id = Registries.BLOCK.getId(block);
-                    return id.toString().toLowerCase().contains(searchLower) ||
-                           block.getName().getString().toLowerCase().contains(searchLower);
-                })
-                .collect(Collectors.toList());
+        this.filteredBlocks = searchIndex.search(search);
         this.scrollOffset = 0;
     }
 
@@ -100,6 +85,14 @@ public class BlockSelectorScreen extends Screen {
                 Text.literal("Selected: " + blockName), 
                 this.width / 2, this.height - 75, 0xFFFFFF);
         }
+        
+        int extraTargets = modClient.getTargets().size() - 1;
+        context.drawCenteredTextWithShadow(this.textRenderer, 
+            Text.literal("Shift-click to add/remove extra targets (" + extraTargets + " added)"), 
+            this.width / 2, this.height - 62, 0xAAAAAA);
+        context.drawCenteredTextWithShadow(this.textRenderer, 
+            Text.literal("Enter adds #tag, ~family or block[property=value]"), 
+            this.width / 2, this.height - 50, 0xAAAAAA);
     }
 
     private void renderBlockGrid(DrawContext context, int mouseX, int mouseY) {
@@ -120,9 +113,11 @@ public class BlockSelectorScreen extends Screen {
             int x = startX + col * (ITEM_SIZE + ITEM_SPACING);
             int y = startY + row * (ITEM_SIZE + ITEM_SPACING);
             
-            // Highlight selected block with white border
+            // Highlight selected block with white border, extra targets in their outline color
             if (block == selectedBlock) {
                 context.drawBorder(x - 1, y - 1, ITEM_SIZE + 2, ITEM_SIZE + 2, 0xFFFFFFFF);
+            } else if (modClient.hasTarget(block)) {
+                context.drawBorder(x - 1, y - 1, ITEM_SIZE + 2, ITEM_SIZE + 2, 0xFF000000 | targetColor(block));
             }
             
             // Highlight hovered block
@@ -165,7 +160,19 @@ public class BlockSelectorScreen extends Screen {
             int y = startY + row * (ITEM_SIZE + ITEM_SPACING);
             
             if (mouseX >= x && mouseX < x + ITEM_SIZE && mouseY >= y && mouseY < y + ITEM_SIZE) {
-                this.selectedBlock = filteredBlocks.get(blockIndex);
+                Block clicked = filteredBlocks.get(blockIndex);
+                
+                // Shift-click adds or removes an extra target and keeps the screen open
+                if (hasShiftDown()) {
+                    if (modClient.hasTarget(clicked)) {
+                        modClient.removeTarget(clicked);
+                    } else {
+                        modClient.addTarget(clicked);
+                    }
+                    return true;
+                }
+                
+                this.selectedBlock = clicked;
                 modClient.setTargetBlock(selectedBlock);
                 this.close();
                 return true;
@@ -175,6 +182,19 @@ public class BlockSelectorScreen extends Screen {
         return super.mouseClicked(mouseX, mouseY, button);
     }
 
+    private static boolean isTargetSpec(String text) {
+        return text.startsWith("#") || text.startsWith("~") || text.contains("[");
+    }
+
+    private int targetColor(Block block) {
+        for (OutlineTarget target : modClient.getTargets()) {
+            if (target.block() == block) {
+                return target.color();
+            }
+        }
+        return 0xFFFFFF;
+    }
+
     @Override
     public boolean mouseScrolled(double mouseX, double mouseY, double horizontalAmount, double verticalAmount) {
         int maxScroll = Math.max(0, filteredBlocks.size() - (ITEMS_PER_ROW * VISIBLE_ROWS));
@@ -190,6 +210,13 @@ public class BlockSelectorScreen extends Screen {
 
     @Override
     public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
+        // Enter adds the search text as a target spec: #tag, ~family or block[property=value]
+        if ((keyCode == GLFW.GLFW_KEY_ENTER || keyCode == GLFW.GLFW_KEY_KP_ENTER) && isTargetSpec(searchField.getText())) {
+            if (modClient.addTarget(searchField.getText())) {
+                searchField.setText("");
+            }
+            return true;
+        }
         if (this.searchField.keyPressed(keyCode, scanCode, modifiers)) {
             return true;
         }
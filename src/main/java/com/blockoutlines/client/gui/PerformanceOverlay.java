@@ -0,0 +1,48 @@
+package com.blockoutlines.client.gui;
+
+import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.stats.PerformanceStats;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderTickCounter;
+
+import java.util.List;
+
+// Scan and outline render cost in the top left corner, styled like the F3 screen. The same
+// lines are added to the F3 screen itself, which hides this overlay while it is open.
+public final class PerformanceOverlay {
+    private static final int LINE_HEIGHT = 9;
+    private static final int BACKGROUND_COLOR = 0x90505050;
+    private static final int TEXT_COLOR = 0xE0E0E0;
+
+    private PerformanceOverlay() {}
+
+    public static void render(DrawContext context, RenderTickCounter tickCounter) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        BlockOutlinesClient modClient = BlockOutlinesClient.getInstance();
+        if (modClient == null || !modClient.isEnabled() || !modClient.isPerformanceOverlayShown()
+            || client.options.hudHidden || client.getDebugHud().shouldShowDebugHud()) {
+            return;
+        }
+
+        TextRenderer textRenderer = client.textRenderer;
+        int y = 2;
+        for (String line : lines(modClient)) {
+            context.fill(1, y - 1, 2 + textRenderer.getWidth(line) + 1, y + LINE_HEIGHT - 1, BACKGROUND_COLOR);
+            context.drawText(textRenderer, line, 2, y, TEXT_COLOR, false);
+            y += LINE_HEIGHT;
+        }
+    }
+
+    public static List<String> lines(BlockOutlinesClient modClient) {
+        List<String> lines = PerformanceStats.lines(modClient.getTrackedBlockCount(), modClient.getTrackedMemoryBytes());
+        if (modClient.isScanLoadedWorld()) {
+            lines.add(String.format(
+                "Loaded world: %d columns kept, %d chunks queued",
+                modClient.getRetainedColumnCount(), modClient.getQueuedChunkCount()
+            ));
+        }
+        return lines;
+    }
+}
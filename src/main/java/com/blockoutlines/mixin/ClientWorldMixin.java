@@ -0,0 +1,33 @@
+package com.blockoutlines.mixin;
+
+import com.blockoutlines.BlockOutlinesClient;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientWorld.class)
+public class ClientWorldMixin {
+    
+    // Every client-side block change ends up here: single block updates, chunk delta
+    // packets (unpacked one position at a time) and locally predicted block breaking
+    @Inject(
+        method = "updateListeners", 
+        at = @At("HEAD")
+    )
+    private void onBlockChanged(
+        BlockPos pos, 
+        BlockState oldState, 
+        BlockState newState, 
+        int flags, 
+        CallbackInfo ci
+    ) {
+        BlockOutlinesClient client = BlockOutlinesClient.getInstance();
+        if (client != null && oldState != newState) {
+            client.onBlockChanged((ClientWorld) (Object) this, pos, newState);
+        }
+    }
+}
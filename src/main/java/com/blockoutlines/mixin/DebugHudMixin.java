@@ -0,0 +1,32 @@
+package com.blockoutlines.mixin;
+
+import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.client.gui.PerformanceOverlay;
+import net.minecraft.client.gui.hud.DebugHud;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.List;
+
+@Mixin(DebugHud.class)
+public class DebugHudMixin {
+
+    // Append the scan and render cost to the left column of the F3 screen
+    @Inject(
+        method = "getLeftText",
+        at = @At("RETURN")
+    )
+    private void addBlockOutlinesLines(CallbackInfoReturnable<List<String>> cir) {
+        BlockOutlinesClient client = BlockOutlinesClient.getInstance();
+        if (client == null || !client.isEnabled()) {
+            return;
+        }
+
+        List<String> lines = cir.getReturnValue();
+        lines.add("");
+        lines.add("[Block Outlines]");
+        lines.addAll(PerformanceOverlay.lines(client));
+    }
+}
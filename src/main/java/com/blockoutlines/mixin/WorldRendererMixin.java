@@ -2,6 +2,7 @@ package com.blockoutlines.mixin;
 
 import com.blockoutlines.BlockOutlinesClient;
 import com.blockoutlines.renderer.CustomBlockOutlineRenderer;
+import com.blockoutlines.tracking.TrackedSnapshot;
 import net.minecraft.client.render.BufferBuilderStorage;
 import net.minecraft.client.render.Camera;
 import net.minecraft.client.render.Frustum;
@@ -13,6 +14,7 @@ import net.minecraft.client.world.ClientWorld;
 import net.minecraft.entity.Entity;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
@@ -29,6 +31,10 @@ public class WorldRendererMixin {
     @Shadow
     private ClientWorld world;
     
+    // Whether the last culling pass left any tracked block on screen
+    @Unique
+    private boolean blockOutlines$anyVisible;
+    
     // Inject after block entities are rendered to add our custom outlines
     @Inject(
         method = "renderBlockEntities", 
@@ -44,7 +50,13 @@ public class WorldRendererMixin {
     ) {
         // Only render if the mod is enabled and we have block positions to render
         BlockOutlinesClient client = BlockOutlinesClient.getInstance();
-        if (client != null && client.isEnabled() && !client.getTrackedBlockPositions().isEmpty()) {
+        if (client == null || !client.isEnabled()) {
+            return;
+        }
+        
+        // Culling already ran in getEntitiesToRender, nothing on screen means nothing to draw
+        TrackedSnapshot snapshot = client.getTrackedSnapshot();
+        if (blockOutlines$anyVisible && !snapshot.isEmpty()) {
             
             // Get the outline vertex consumer provider from the buffer builders
             OutlineVertexConsumerProvider outlineProvider = this.bufferBuilders.getOutlineVertexConsumers();
@@ -55,9 +67,7 @@ public class WorldRendererMixin {
                 camera,
                 outlineProvider,
                 this.world,
-                client.getTrackedBlockPositions(),
-                client.getTargetBlock(),
-                client.getOutlineColor()
+                snapshot
             );
         }
     }
@@ -74,9 +84,27 @@ public class WorldRendererMixin {
         List<Entity> output,
         CallbackInfoReturnable<Boolean> cir
     ) {
-        // Force return true when our mod is active to ensure outline pass runs
+        // Force return true when a tracked block is on screen to ensure outline pass runs. The
+        // full-screen outline post-process is not forced for blocks behind the camera.
+        blockOutlines$anyVisible = false;
         BlockOutlinesClient client = BlockOutlinesClient.getInstance();
-        if (client != null && client.isEnabled() && !client.getTrackedBlockPositions().isEmpty()) {
+        if (client == null || !client.isEnabled()) {
+            return;
+        }
+        
+        TrackedSnapshot snapshot = client.getTrackedSnapshot();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        
+        blockOutlines$anyVisible = CustomBlockOutlineRenderer.prepareFrame(
+            this.world,
+            snapshot,
+            camera,
+            frustum,
+            client.getOutlineDrawDistance()
+        );
+        if (blockOutlines$anyVisible) {
             cir.setReturnValue(true);
         }
     }
@@ -0,0 +1,32 @@
+package com.blockoutlines.renderer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// Bytes allocated by the current thread, as counted by the JVM's per-thread allocation
+// counters (HotSpot and OpenJ9). Used to check that the per-frame outline path stays
+// allocation free once warmed up, every frame in game and in OutlineFrameAllocationTest.
+final class AllocationProbe {
+    private static final com.sun.management.ThreadMXBean THREADS = resolve();
+
+    private AllocationProbe() {}
+
+    static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    // Running total for the current thread, or -1 when the JVM does not count allocations
+    static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean resolve() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean sunThreads
+            && sunThreads.isThreadAllocatedMemorySupported()) {
+            sunThreads.setThreadAllocatedMemoryEnabled(true);
+            return sunThreads;
+        }
+        return null;
+    }
+}
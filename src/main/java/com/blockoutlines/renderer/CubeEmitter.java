@@ -0,0 +1,50 @@
+package com.blockoutlines.renderer;
+
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.client.util.math.MatrixStack;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+// Writes the 24 vertices of a unit box, the fast path for states whose outline is a full cube.
+// No model lookup, no lighting and no ambient occlusion, the faces are never visible anyway.
+// Not thread-safe, holds a scratch vector. Benchmarked by OutlineEmitBenchmark in src/jmh.
+final class CubeEmitter {
+    // Unit cube as quads, counter-clockwise from outside: x, y, z, u, v per corner. Faces in
+    // Direction order (down, up, north, south, west, east) to match NORMALS.
+    private static final float[][] FACES = {
+        {0, 0, 0, 0, 0,  1, 0, 0, 1, 0,  1, 0, 1, 1, 1,  0, 0, 1, 0, 1},
+        {0, 1, 0, 0, 0,  0, 1, 1, 1, 0,  1, 1, 1, 1, 1,  1, 1, 0, 0, 1},
+        {0, 0, 0, 0, 0,  0, 1, 0, 1, 0,  1, 1, 0, 1, 1,  1, 0, 0, 0, 1},
+        {0, 0, 1, 0, 0,  1, 0, 1, 1, 0,  1, 1, 1, 1, 1,  0, 1, 1, 0, 1},
+        {0, 0, 0, 0, 0,  0, 0, 1, 1, 0,  0, 1, 1, 1, 1,  0, 1, 0, 0, 1},
+        {1, 0, 0, 0, 0,  1, 1, 0, 1, 0,  1, 1, 1, 1, 1,  1, 0, 1, 0, 1}
+    };
+    private static final float[][] NORMALS = {
+        {0, -1, 0}, {0, 1, 0}, {0, 0, -1}, {0, 0, 1}, {-1, 0, 0}, {1, 0, 0}
+    };
+
+    private final Vector3f vertex = new Vector3f();
+
+    // Every face textured with the whole sprite. For the outline only the sprite's alpha
+    // matters, which is what the model's faces would sample too.
+    void emit(MatrixStack matrixStack, VertexConsumer consumer, Sprite sprite) {
+        emit(matrixStack, consumer, sprite.getMinU(), sprite.getMinV(), sprite.getMaxU(), sprite.getMaxV());
+    }
+
+    void emit(MatrixStack matrixStack, VertexConsumer consumer, float minU, float minV, float maxU, float maxV) {
+        Matrix4f matrix = matrixStack.peek().getPositionMatrix();
+        float spanU = maxU - minU;
+        float spanV = maxV - minV;
+        for (int face = 0; face < FACES.length; face++) {
+            float[] corners = FACES[face];
+            float[] normal = NORMALS[face];
+            for (int i = 0; i < corners.length; i += 5) {
+                matrix.transformPosition(corners[i], corners[i + 1], corners[i + 2], vertex);
+                consumer.vertex(vertex.x, vertex.y, vertex.z)
+                    .texture(minU + corners[i + 3] * spanU, minV + corners[i + 4] * spanV)
+                    .normal(normal[0], normal[1], normal[2]);
+            }
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package com.blockoutlines.renderer;
 
+import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.stats.OutlineFrameEvent;
+import com.blockoutlines.stats.PerformanceStats;
+import com.blockoutlines.stats.Telemetry;
+import com.blockoutlines.tracking.TrackedLayer;
+import com.blockoutlines.tracking.TrackedSnapshot;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+import jdk.jfr.EventType;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockRenderType;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.Frustum;
 import net.minecraft.client.render.OutlineVertexConsumerProvider;
 import net.minecraft.client.render.OverlayTexture;
 import net.minecraft.client.render.RenderLayer;
@@ -15,93 +24,240 @@ import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.util.math.random.Random;
 import net.minecraft.world.World;
 
 import java.util.List;
-import java.util.Set;
 
 public class CustomBlockOutlineRenderer {
     
+    // Use EntityTranslucent render layer - supports outlines and alpha blending
+    private static final RenderLayer OUTLINE_LAYER = RenderLayer.getEntityTranslucent(
+        Identifier.of("minecraft", "textures/atlas/blocks.png"), 
+        true
+    );
+    
+    private static final OutlineMeshCache MESH_CACHE = new OutlineMeshCache();
+    private static final RenderBudget BUDGET = new RenderBudget();
+    
+    // Whether a state's outline is exactly the unit cube, resolved once per state
+    private static final Reference2BooleanOpenHashMap<BlockState> FULL_CUBE_STATES = new Reference2BooleanOpenHashMap<>();
+    private static final CubeEmitter CUBE_EMITTER = new CubeEmitter();
+    private static final ModelPartCache MODEL_PARTS = new ModelPartCache();
+    
+    // Bytes the culling and replay steps allocated last frame, -1 when the JVM cannot tell.
+    // Mesh rebuilds and the vanilla buffer fetch are not counted, everything else should stay at 0.
+    private static long lastFrameAllocatedBytes = -1;
+    private static long frameAllocatedBytes;
+    // Time spent in prepareFrame, the render call adds its own before the frame is recorded
+    private static long prepareNanos;
+    
+    // Flight recorder event of the current frame, only created while a recording wants it
+    private static final EventType FRAME_EVENT = EventType.getEventType(OutlineFrameEvent.class);
+    private static OutlineFrameEvent frameEvent;
+    
+    // Runs before the outline pass is decided on: brings the retained geometry up to date and
+    // culls it by section against the frustum and the optional distance limit (0 for none).
+    // Returns whether any tracked block is visible, only then is the outline pass worth forcing.
+    public static boolean prepareFrame(
+        World world,
+        TrackedSnapshot trackedBlocks,
+        Camera camera,
+        Frustum frustum,
+        double maxDistance
+    ) {
+        long start = System.nanoTime();
+        frameEvent = FRAME_EVENT.isEnabled() ? new OutlineFrameEvent() : null;
+        if (frameEvent != null) {
+            frameEvent.begin();
+        }
+        
+        // Rebuild the retained geometry of changed sections only, usually nothing
+        MESH_CACHE.update(trackedBlocks, world, MinecraftClient.getInstance().getBlockRenderManager());
+        
+        long before = AllocationProbe.allocatedBytes();
+        BUDGET.onFrame(System.nanoTime(), MESH_CACHE.getDrawnVertices());
+        int skippedBefore = MESH_CACHE.getSkippedBlocks();
+        boolean anyVisible = MESH_CACHE.cull(frustum, camera.getPos(), maxDistance, BUDGET.getVertexBudget());
+        frameAllocatedBytes = AllocationProbe.allocatedBytes() - before;
+        
+        if ((skippedBefore == 0) != (MESH_CACHE.getSkippedBlocks() == 0)) {
+            BlockOutlinesClient.LOGGER.debug(
+                "Outline budget of {} vertices at {} fps target, skipping {} blocks",
+                BUDGET.getVertexBudget(), BUDGET.getTargetFps(), MESH_CACHE.getSkippedBlocks()
+            );
+        }
+        
+        prepareNanos = System.nanoTime() - start;
+        if (!anyVisible) {
+            // The outline pass is not forced, so no render call follows this frame
+            recordFrame(prepareNanos, false);
+        }
+        return anyVisible;
+    }
+    
+    // Frame rate the outline vertex budget adapts to, 0 draws everything
+    public static void setTargetFps(int targetFps) {
+        BUDGET.setTargetFps(targetFps);
+    }
+    
+    // Visible tracked blocks left out last frame to stay within the budget
+    public static int getSkippedBlocks() {
+        return MESH_CACHE.getSkippedBlocks();
+    }
+    
+    public static int getVertexBudget() {
+        return BUDGET.getVertexBudget();
+    }
+    
+    public static long getLastFrameAllocatedBytes() {
+        return lastFrameAllocatedBytes;
+    }
+    
+    // Draws the sections that survived the last prepareFrame() call
     public static void renderGlowingBlockOutlines(
         MatrixStack matrices,
         Camera camera,
         OutlineVertexConsumerProvider outlineProvider,
         World world,
-        Set<BlockPos> blockPositions,
-        Block targetBlock,
-        int color
+        TrackedSnapshot trackedBlocks
     ) {
-        if (blockPositions.isEmpty()) {
+        if (trackedBlocks.isEmpty()) {
             return;
         }
         
-        // Extract RGB components from the color
-        int red = (color >> 16) & 0xFF;
-        int green = (color >> 8) & 0xFF;
-        int blue = color & 0xFF;
-        
-        // Set the outline color
-        outlineProvider.setColor(red, green, blue, 255); // Full opacity
+        long start = System.nanoTime();
+        if (frameEvent != null) {
+            // The event covers the draw itself, culling is already in prepareTime
+            frameEvent.begin();
+        }
         
         // Get camera position for relative positioning
         Vec3d cameraPos = camera.getPos();
         
-        // Get block render manager
-        BlockRenderManager blockRenderManager = MinecraftClient.getInstance().getBlockRenderManager();
-        
-        // Render each block using the outline system
-        for (BlockPos pos : blockPositions) {
-            BlockState state = world.getBlockState(pos);
-            if (!state.isAir() && state.isOf(targetBlock)) {
-                
-                matrices.push();
-                
-                // Translate to block position relative to camera
-                matrices.translate(
-                    pos.getX() - cameraPos.x,
-                    pos.getY() - cameraPos.y,
-                    pos.getZ() - cameraPos.z
-                );
-                
-                // Render the block with invisible faces but preserve outline capability
-                renderInvisibleBlock(state, pos, matrices, outlineProvider, blockRenderManager, world);
+        // Targets sharing a color are drawn together, so the outline color is set and a
+        // buffer fetched once per color rather than once per block
+        int layerCount = trackedBlocks.getLayerCount();
+        for (int i = 0; i < layerCount; i++) {
+            int color = trackedBlocks.getLayer(i).getColor();
+            if (isColorHandled(trackedBlocks, i, color)) {
+                continue;
+            }
+            
+            // Extract RGB components from the color and set the outline color
+            outlineProvider.setColor((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF, 255); // Full opacity
+            
+            // The outline buffer captures the color when it is fetched
+            VertexConsumer consumer = outlineProvider.getBuffer(OUTLINE_LAYER);
+            
+            for (int j = i; j < layerCount; j++) {
+                TrackedLayer layer = trackedBlocks.getLayer(j);
+                if (layer.getColor() != color || layer.isEmpty()) {
+                    continue;
+                }
                 
-                matrices.pop();
+                // Replay the cached meshes, one translation per section instead of per block
+                long before = AllocationProbe.allocatedBytes();
+                MESH_CACHE.render(j, matrices, cameraPos, consumer);
+                frameAllocatedBytes += AllocationProbe.allocatedBytes() - before;
             }
         }
+        lastFrameAllocatedBytes = AllocationProbe.isSupported() ? frameAllocatedBytes : -1;
         
-        // Draw all buffered outline vertices - this triggers the real glow post-processing
+        // Draw all buffered outline vertices - this triggers the real glow post-processing.
+        // Colors are baked into the outline vertices, so one draw covers every color.
         outlineProvider.draw();
+        recordFrame(prepareNanos + System.nanoTime() - start, true);
+    }
+    
+    private static void recordFrame(long nanos, boolean outlinePassForced) {
+        Telemetry.INSTANCE.recordFrame(
+            nanos,
+            MESH_CACHE.getDrawnBlocks(),
+            MESH_CACHE.getCulledBlocks(),
+            MESH_CACHE.getSkippedBlocks(),
+            MESH_CACHE.getDrawnVertices(),
+            outlinePassForced
+        );
+        if (frameEvent != null) {
+            commitFrameEvent(outlinePassForced);
+        }
+        PerformanceStats.recordFrame(
+            nanos,
+            MESH_CACHE.getDrawnBlocks(),
+            MESH_CACHE.getCulledBlocks(),
+            MESH_CACHE.getSkippedBlocks(),
+            MESH_CACHE.getDrawnVertices(),
+            outlinePassForced,
+            lastFrameAllocatedBytes
+        );
+    }
+    
+    private static void commitFrameEvent(boolean outlinePassForced) {
+        OutlineFrameEvent event = frameEvent;
+        frameEvent = null;
+        event.end();
+        if (event.shouldCommit()) {
+            event.drawnBlocks = MESH_CACHE.getDrawnBlocks();
+            event.culledBlocks = MESH_CACHE.getCulledBlocks();
+            event.skippedBlocks = MESH_CACHE.getSkippedBlocks();
+            event.vertices = MESH_CACHE.getDrawnVertices();
+            event.outlinePassForced = outlinePassForced;
+            event.prepareTime = prepareNanos;
+            event.allocatedBytes = lastFrameAllocatedBytes;
+            event.commit();
+        }
+    }
+    
+    // Whether an earlier layer already drew everything of this color
+    private static boolean isColorHandled(TrackedSnapshot trackedBlocks, int layerIndex, int color) {
+        for (int i = 0; i < layerIndex; i++) {
+            if (trackedBlocks.getLayer(i).getColor() == color) {
+                return true;
+            }
+        }
+        return false;
     }
     
-    // Render invisible block method adapted from block-outlines-mod approach
-    private static void renderInvisibleBlock(
+    // A tracked block changed state in place, rebuild the mesh of its section
+    public static void markBlockDirty(BlockPos pos) {
+        MESH_CACHE.markDirty(pos.getX(), pos.getY(), pos.getZ());
+    }
+    
+    // Merged hull shells for full cubes, or one block model per tracked block
+    public static void setMergeHull(boolean mergeHull) {
+        MESH_CACHE.setMergeHull(mergeHull);
+    }
+    
+    // Drops all retained geometry, needed once the block atlas or models were reloaded
+    public static void invalidateMeshes() {
+        MESH_CACHE.clear();
+        FULL_CUBE_STATES.clear();
+        MODEL_PARTS.clear();
+    }
+    
+    // Render invisible block method adapted from block-outlines-mod approach. Feeds the mesh
+    // builder, which records the emitted faces instead of drawing them. Full cubes skip the
+    // model renderer, its lighting and ambient occlusion work is wasted on invisible faces.
+    // Returns whether the cube fast path was taken.
+    static boolean renderInvisibleBlock(
         BlockState blockState, 
         BlockPos blockPos, 
         MatrixStack matrixStack, 
-        OutlineVertexConsumerProvider outlineProvider,
+        VertexConsumer consumer,
         BlockRenderManager blockRenderManager,
         World world
     ) {
         if (blockState.getRenderType() != BlockRenderType.MODEL) {
-            return;
+            return false;
+        }
+        
+        if (isFullCube(blockState, world, blockPos)) {
+            CUBE_EMITTER.emit(matrixStack, consumer, blockRenderManager.getModels().getModelParticleSprite(blockState));
+            return true;
         }
 
-        // Generate the block model parts using the block's render seed
-        List<BlockModelPart> modelParts = blockRenderManager
-                .getModel(blockState)
-                .getParts(Random.create(blockState.getRenderingSeed(blockPos)));
-
-        // Use EntityTranslucent render layer - supports outlines and alpha blending
-        RenderLayer renderLayer = RenderLayer.getEntityTranslucent(
-            Identifier.of("minecraft", "textures/atlas/blocks.png"), 
-            true
-        );
-        VertexConsumer vertexConsumer = outlineProvider.getBuffer(renderLayer);
-
-        // Wrap with InvisibleVertexConsumer to make faces transparent
-        InvisibleVertexConsumer invisibleConsumer = new InvisibleVertexConsumer(vertexConsumer);
+        // Model parts for the block's render seed, cached per state where the seed does not matter
+        List<BlockModelPart> modelParts = MODEL_PARTS.getParts(blockState, blockPos, blockRenderManager);
 
         // Render using model renderer directly
         blockRenderManager.getModelRenderer().render(
@@ -110,49 +266,20 @@ public class CustomBlockOutlineRenderer {
             blockState,
             blockPos,
             matrixStack,
-            invisibleConsumer,
+            consumer,
             false,
             OverlayTexture.DEFAULT_UV
         );
+        return false;
     }
     
-    // InvisibleVertexConsumer that makes block faces transparent
-    private static class InvisibleVertexConsumer implements VertexConsumer {
-        private final VertexConsumer delegate;
-
-        public InvisibleVertexConsumer(VertexConsumer delegate) {
-            this.delegate = delegate;
-        }
-
-        @Override
-        public VertexConsumer vertex(float x, float y, float z) {
-            return this.delegate.vertex(x, y, z);
-        }
-
-        @Override
-        public VertexConsumer color(int red, int green, int blue, int alpha) {
-            // Set alpha to 0 to make it completely transparent
-            return this.delegate.color(red, green, blue, 0);
-        }
-
-        @Override
-        public VertexConsumer texture(float u, float v) {
-            return this.delegate.texture(u, v);
-        }
-
-        @Override
-        public VertexConsumer overlay(int u, int v) {
-            return this.delegate.overlay(u, v);
-        }
-
-        @Override
-        public VertexConsumer light(int u, int v) {
-            return this.delegate.light(u, v);
-        }
-
-        @Override
-        public VertexConsumer normal(float x, float y, float z) {
-            return this.delegate.normal(x, y, z);
+    private static boolean isFullCube(BlockState state, World world, BlockPos pos) {
+        if (FULL_CUBE_STATES.containsKey(state)) {
+            return FULL_CUBE_STATES.getBoolean(state);
         }
+        // Shapes offset by position (flowers, bamboo) are never full cubes, so one lookup per state holds
+        boolean fullCube = Block.isShapeFullCube(state.getOutlineShape(world, pos));
+        FULL_CUBE_STATES.put(state, fullCube);
+        return fullCube;
     }
 }
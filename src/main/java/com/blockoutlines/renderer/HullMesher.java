@@ -0,0 +1,177 @@
+package com.blockoutlines.renderer;
+
+import com.blockoutlines.tracking.SectionBitStore;
+import com.blockoutlines.tracking.TrackedLayer;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+
+// Builds the outer shell of the full-cube blocks of one section: faces shared by two tracked
+// cubes are dropped and the remaining coplanar faces are greedily merged into larger quads.
+// A 10 block vein becomes a handful of quads instead of 10 models of 24 vertices each.
+//
+// The merged quads span several blocks, so they cannot follow the atlas tiling. Every vertex
+// samples the center of one opaque sprite instead, the outline shader only looks at alpha.
+final class HullMesher {
+    private final long[] hull = new long[SectionBitStore.WORDS_PER_SECTION];
+    // Faces of one slice still to be merged, one 16 bit row per u coordinate
+    private final int[] rows = new int[16];
+    private final BlockPos.Mutable pos = new BlockPos.Mutable();
+    private int baseX;
+    private int baseY;
+    private int baseZ;
+    private TrackedLayer layer;
+    private World world;
+    private float spriteU;
+    private float spriteV;
+
+    // Blocks whose outline is exactly their cube. Opaque full cubes also have opaque textures,
+    // so the merged shell has the same silhouette as the individual models.
+    static boolean isHullBlock(BlockState state) {
+        return state.isOpaqueFullCube();
+    }
+
+    // Uses an already known hull mask for the section, all of its blocks must be hull blocks
+    void setHull(long sectionKey, long[] hullBits, TrackedLayer layer, World world) {
+        this.layer = layer;
+        this.world = world;
+        this.baseX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey));
+        this.baseY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey));
+        this.baseZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey));
+        System.arraycopy(hullBits, 0, hull, 0, SectionBitStore.WORDS_PER_SECTION);
+    }
+
+    // Picks the hull blocks out of a section mask. Returns the hull mask, valid until the next
+    // call, or null when the section has none.
+    long[] collect(long sectionKey, long[] bits, TrackedLayer layer, World world) {
+        this.layer = layer;
+        this.world = world;
+        this.baseX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey));
+        this.baseY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey));
+        this.baseZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey));
+
+        boolean any = false;
+        for (int word = 0; word < SectionBitStore.WORDS_PER_SECTION; word++) {
+            hull[word] = 0;
+            long value = bits[word];
+            while (value != 0) {
+                int index = (word << 6) | Long.numberOfTrailingZeros(value);
+                pos.set(baseX + (index & 15), baseY + (index >>> 8), baseZ + ((index >>> 4) & 15));
+                if (isHullBlock(world.getBlockState(pos))) {
+                    hull[word] |= 1L << index;
+                    any = true;
+                }
+                value &= value - 1;
+            }
+        }
+        return any ? hull : null;
+    }
+
+    // Emits the merged shell of the last collected section, positions relative to its origin
+    void emit(Sprite sprite, VertexConsumer consumer) {
+        emit((sprite.getMinU() + sprite.getMaxU()) * 0.5f, (sprite.getMinV() + sprite.getMaxV()) * 0.5f, consumer);
+    }
+
+    // Same with the atlas coordinates every vertex samples given directly
+    void emit(float u, float v, VertexConsumer consumer) {
+        spriteU = u;
+        spriteV = v;
+        for (int axis = 0; axis < 3; axis++) {
+            for (int slice = 0; slice < 16; slice++) {
+                emitSlice(axis, slice, 1, consumer);
+                emitSlice(axis, slice, -1, consumer);
+            }
+        }
+    }
+
+    // Collects the exposed faces of one slice facing +axis or -axis, then merges them
+    private void emitSlice(int axis, int slice, int direction, VertexConsumer consumer) {
+        boolean anyFace = false;
+        for (int u = 0; u < 16; u++) {
+            int row = 0;
+            for (int v = 0; v < 16; v++) {
+                if (isHull(axis, slice, u, v) && !isHull(axis, slice + direction, u, v)) {
+                    row |= 1 << v;
+                }
+            }
+            rows[u] = row;
+            anyFace |= row != 0;
+        }
+        if (!anyFace) {
+            return;
+        }
+
+        float plane = direction > 0 ? slice + 1 : slice;
+        for (int u = 0; u < 16; u++) {
+            while (rows[u] != 0) {
+                // Widest run along v starting at the lowest face left in this row
+                int v0 = Integer.numberOfTrailingZeros(rows[u]);
+                int v1 = v0;
+                while (v1 + 1 < 16 && (rows[u] & (1 << (v1 + 1))) != 0) {
+                    v1++;
+                }
+                int run = ((1 << (v1 + 1)) - 1) & ~((1 << v0) - 1);
+
+                // Extend along u while the next rows hold the whole run
+                int u1 = u;
+                while (u1 + 1 < 16 && (rows[u1 + 1] & run) == run) {
+                    u1++;
+                }
+                for (int i = u; i <= u1; i++) {
+                    rows[i] &= ~run;
+                }
+                emitQuad(axis, direction, plane, u, u1 + 1, v0, v1 + 1, consumer);
+            }
+        }
+    }
+
+    // Counter-clockwise as seen from outside. (u, v, axis) is right-handed for every axis:
+    // x uses (y, z), y uses (z, x), z uses (x, y)
+    private void emitQuad(int axis, int direction, float plane, int u0, int u1, int v0, int v1, VertexConsumer consumer) {
+        if (direction > 0) {
+            vertex(axis, direction, plane, u0, v0, consumer);
+            vertex(axis, direction, plane, u1, v0, consumer);
+            vertex(axis, direction, plane, u1, v1, consumer);
+            vertex(axis, direction, plane, u0, v1, consumer);
+        } else {
+            vertex(axis, direction, plane, u0, v0, consumer);
+            vertex(axis, direction, plane, u0, v1, consumer);
+            vertex(axis, direction, plane, u1, v1, consumer);
+            vertex(axis, direction, plane, u1, v0, consumer);
+        }
+    }
+
+    private void vertex(int axis, int direction, float plane, float u, float v, VertexConsumer consumer) {
+        switch (axis) {
+            case 0 -> consumer.vertex(plane, u, v).texture(spriteU, spriteV).normal(direction, 0, 0);
+            case 1 -> consumer.vertex(v, plane, u).texture(spriteU, spriteV).normal(0, direction, 0);
+            default -> consumer.vertex(u, v, plane).texture(spriteU, spriteV).normal(0, 0, direction);
+        }
+    }
+
+    // Whether the cell at slice/u/v is a tracked hull block. Cells just outside the section
+    // are looked up in the neighboring section of the same layer.
+    private boolean isHull(int axis, int slice, int u, int v) {
+        int x, y, z;
+        switch (axis) {
+            case 0 -> { x = slice; y = u; z = v; }
+            case 1 -> { x = v; y = slice; z = u; }
+            default -> { x = u; y = v; z = slice; }
+        }
+        if (slice >= 0 && slice < 16) {
+            int index = SectionBitStore.localIndex(x, y, z);
+            return (hull[index >>> 6] & (1L << index)) != 0;
+        }
+
+        int worldX = baseX + x;
+        int worldY = baseY + y;
+        int worldZ = baseZ + z;
+        if (!layer.contains(worldX, worldY, worldZ)) {
+            return false;
+        }
+        return isHullBlock(world.getBlockState(pos.set(worldX, worldY, worldZ)));
+    }
+}
@@ -0,0 +1,90 @@
+package com.blockoutlines.renderer;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectLinkedOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.render.block.BlockRenderManager;
+import net.minecraft.client.render.model.BlockModelPart;
+import net.minecraft.client.render.model.BlockStateModel;
+import net.minecraft.client.render.model.WeightedBlockStateModel;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.random.Random;
+
+import java.util.List;
+
+// Resolved model parts per block state, so the outline renderer does not look the model up and
+// allocate a Random plus a part list for every block. Most states resolve to the same parts
+// whatever the position seed, those are cached outright. States with weighted variants (stone,
+// grass, rotated random textures) keep their model and are resolved into a reused list with a
+// reused Random. Bounded, least recently used states are dropped first.
+// Client thread only, cleared when resources are reloaded.
+final class ModelPartCache {
+    private static final int MAX_STATES = 4096;
+    // Positions whose rendering seeds are tried before a model is considered independent of
+    // the position seed. Far apart, so the seeds are too: the first value this Random draws
+    // is the same for small consecutive seeds, which hides weighted variants.
+    private static final int SEED_PROBES = 16;
+    private static final int PROBE_SPACING = 7919;
+
+    private record Entry(BlockStateModel model, List<BlockModelPart> parts, boolean seedDependent) {}
+
+    private final Reference2ObjectLinkedOpenHashMap<BlockState, Entry> entries = new Reference2ObjectLinkedOpenHashMap<>();
+    private final Random random = Random.create(0L);
+    private final List<BlockModelPart> scratch = new ObjectArrayList<>();
+
+    // The parts to render for state at pos. A seed dependent result is only valid until the next call.
+    List<BlockModelPart> getParts(BlockState state, BlockPos pos, BlockRenderManager blockRenderManager) {
+        Entry entry = entries.getAndMoveToLast(state);
+        if (entry == null) {
+            entry = resolve(state, blockRenderManager);
+            if (entries.size() >= MAX_STATES) {
+                entries.removeFirst();
+            }
+            entries.putAndMoveToLast(state, entry);
+        }
+        if (!entry.seedDependent()) {
+            return entry.parts();
+        }
+
+        scratch.clear();
+        random.setSeed(state.getRenderingSeed(pos));
+        entry.model().addParts(random, scratch);
+        return scratch;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    private Entry resolve(BlockState state, BlockRenderManager blockRenderManager) {
+        BlockStateModel model = blockRenderManager.getModel(state);
+        if (model instanceof WeightedBlockStateModel) {
+            return new Entry(model, List.of(), true);
+        }
+
+        // Multipart models can still hold weighted variants, those show in what they resolve to
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        random.setSeed(state.getRenderingSeed(pos));
+        List<BlockModelPart> parts = model.getParts(random);
+        for (int probe = 1; probe < SEED_PROBES; probe++) {
+            int offset = probe * PROBE_SPACING;
+            random.setSeed(state.getRenderingSeed(pos.set(offset, probe * 31 - 64, -offset * 3)));
+            if (!sameParts(parts, model.getParts(random))) {
+                return new Entry(model, List.of(), true);
+            }
+        }
+        return new Entry(model, List.copyOf(parts), false);
+    }
+
+    private static boolean sameParts(List<BlockModelPart> a, List<BlockModelPart> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,485 @@
+package com.blockoutlines.renderer;
+
+import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.tracking.SectionBitStore;
+import com.blockoutlines.tracking.TrackedLayer;
+import com.blockoutlines.tracking.TrackedSnapshot;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.client.render.Frustum;
+import net.minecraft.client.render.LightmapTextureManager;
+import net.minecraft.client.render.OverlayTexture;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.render.block.BlockRenderManager;
+import net.minecraft.client.texture.Sprite;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Outline geometry retained between frames. Meshes are built per target and chunk section
+// from the block models, then replayed every frame with a single offset per section. Only
+// sections whose mask changed since the last snapshot, or that were marked dirty because a
+// tracked block changed state in place, are rebuilt, together with their neighbors when
+// full cubes are merged into hulls.
+// Client thread only.
+public class OutlineMeshCache {
+    // Outline vertices take their color from the outline buffer, the regular pass must not show them
+    private static final int INVISIBLE_COLOR = 0x00FFFFFF;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // One section mesh map per snapshot layer, in layer order
+    private final List<Long2ObjectOpenHashMap<SectionMesh>> layers = new ArrayList<>();
+    // Every mesh of every layer, nearest to the camera first. Kept sorted incrementally: new
+    // meshes are inserted into place and a camera move only nudges a nearly sorted list.
+    private final ObjectArrayList<SectionMesh> ordered = new ObjectArrayList<>();
+    private final ObjectArrayList<SectionMesh> added = new ObjectArrayList<>();
+    private int cameraSectionX;
+    private int cameraSectionY;
+    private int cameraSectionZ;
+    private int skippedBlocks;
+    private int drawnVertices;
+    private int drawnBlocks;
+    private int culledBlocks;
+    // Meshes of each layer that passed culling this frame
+    private final List<ObjectArrayList<SectionMesh>> visible = new ArrayList<>();
+    private final LongOpenHashSet dirtySections = new LongOpenHashSet();
+    private final LongOpenHashSet changed = new LongOpenHashSet();
+    private final LongOpenHashSet rebuild = new LongOpenHashSet();
+    private final HullMesher hullMesher = new HullMesher();
+    private final BuildStats stats = new BuildStats();
+    private final MeshCapture capture = new MeshCapture();
+    private final MatrixStack buildMatrices = new MatrixStack();
+    private final BlockPos.Mutable buildPos = new BlockPos.Mutable();
+    private final Vector3f transformed = new Vector3f();
+    private World world;
+    private long generation = -1;
+    // Full cubes are drawn as one merged shell instead of one model each
+    private boolean mergeHull = true;
+
+    // Brings the meshes in line with the snapshot, rebuilding only changed sections
+    public void update(TrackedSnapshot snapshot, World world, BlockRenderManager blockRenderManager) {
+        if (world != this.world) {
+            clear();
+            this.world = world;
+        }
+        if (snapshot.getGeneration() == generation && dirtySections.isEmpty()) {
+            return;
+        }
+        generation = snapshot.getGeneration();
+        stats.reset();
+        added.clear();
+
+        int layerCount = snapshot.getLayerCount();
+        while (layers.size() > layerCount) {
+            layers.remove(layers.size() - 1);
+        }
+        while (layers.size() < layerCount) {
+            layers.add(new Long2ObjectOpenHashMap<>());
+        }
+
+        for (int i = 0; i < layerCount; i++) {
+            TrackedLayer layer = snapshot.getLayer(i);
+            Long2ObjectOpenHashMap<SectionMesh> meshes = layers.get(i);
+            changed.clear();
+
+            // Drop sections that are no longer tracked
+            ObjectIterator<Long2ObjectMap.Entry<SectionMesh>> iterator = meshes.long2ObjectEntrySet().fastIterator();
+            while (iterator.hasNext()) {
+                long sectionKey = iterator.next().getLongKey();
+                if (layer.getSection(sectionKey) == null) {
+                    iterator.remove();
+                    changed.add(sectionKey);
+                }
+            }
+
+            layer.forEachSection((sectionKey, bits) -> {
+                SectionMesh mesh = meshes.get(sectionKey);
+                if (mesh == null || dirtySections.contains(sectionKey) || !mesh.isBuiltFrom(bits)) {
+                    changed.add(sectionKey);
+                }
+            });
+
+            // Hull faces on a section border depend on the neighboring section
+            rebuild.clear();
+            rebuild.addAll(changed);
+            if (mergeHull) {
+                LongIterator changedKeys = changed.iterator();
+                while (changedKeys.hasNext()) {
+                    long sectionKey = changedKeys.nextLong();
+                    for (Direction direction : DIRECTIONS) {
+                        rebuild.add(ChunkSectionPos.offset(sectionKey, direction));
+                    }
+                }
+            }
+
+            LongIterator rebuildKeys = rebuild.iterator();
+            while (rebuildKeys.hasNext()) {
+                long sectionKey = rebuildKeys.nextLong();
+                long[] bits = layer.getSection(sectionKey);
+                if (bits != null) {
+                    SectionMesh mesh = build(sectionKey, bits, i, layer, world, blockRenderManager);
+                    meshes.put(sectionKey, mesh);
+                    added.add(mesh);
+                    stats.sections++;
+                }
+            }
+        }
+        dirtySections.clear();
+        refreshOrder();
+
+        if (stats.sections > 0 && BlockOutlinesClient.LOGGER.isDebugEnabled()) {
+            BlockOutlinesClient.LOGGER.debug("Outline meshes: {}", stats);
+        }
+    }
+
+    // Collects the meshes inside the frustum and within maxDistance blocks of the camera
+    // (0 for no limit), nearest first until vertexBudget is used up. Returns whether anything
+    // at all is left to draw.
+    public boolean cull(Frustum frustum, Vec3d cameraPos, double maxDistance, int vertexBudget) {
+        while (visible.size() > layers.size()) {
+            visible.remove(visible.size() - 1);
+        }
+        while (visible.size() < layers.size()) {
+            visible.add(new ObjectArrayList<>());
+        }
+        for (int i = 0; i < visible.size(); i++) {
+            visible.get(i).clear();
+        }
+
+        int sectionX = ChunkSectionPos.getSectionCoord(MathHelper.floor(cameraPos.x));
+        int sectionY = ChunkSectionPos.getSectionCoord(MathHelper.floor(cameraPos.y));
+        int sectionZ = ChunkSectionPos.getSectionCoord(MathHelper.floor(cameraPos.z));
+        if (sectionX != cameraSectionX || sectionY != cameraSectionY || sectionZ != cameraSectionZ) {
+            cameraSectionX = sectionX;
+            cameraSectionY = sectionY;
+            cameraSectionZ = sectionZ;
+            for (int i = 0; i < ordered.size(); i++) {
+                updateDistance(ordered.get(i));
+            }
+            insertionSort();
+        }
+
+        double maxDistanceSq = maxDistance > 0 ? maxDistance * maxDistance : Double.POSITIVE_INFINITY;
+        boolean any = false;
+        skippedBlocks = 0;
+        drawnVertices = 0;
+        drawnBlocks = 0;
+        culledBlocks = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            SectionMesh mesh = ordered.get(i);
+            if (mesh.vertexCount == 0) {
+                continue;
+            }
+            if (squaredDistance(mesh.bounds, cameraPos) > maxDistanceSq || !frustum.isVisible(mesh.bounds)) {
+                culledBlocks += mesh.blockCount;
+                continue;
+            }
+            // Whole sections are dropped once the budget is spent, the nearest ones are already in
+            if (mesh.vertexCount > vertexBudget - drawnVertices) {
+                skippedBlocks += mesh.blockCount;
+                continue;
+            }
+            drawnVertices += mesh.vertexCount;
+            drawnBlocks += mesh.blockCount;
+            visible.get(mesh.layerIndex).add(mesh);
+            any = true;
+        }
+        return any;
+    }
+
+    // Tracked blocks in visible sections that did not fit into the last frame's budget
+    public int getSkippedBlocks() {
+        return skippedBlocks;
+    }
+
+    public int getDrawnVertices() {
+        return drawnVertices;
+    }
+
+    public int getDrawnBlocks() {
+        return drawnBlocks;
+    }
+
+    // Tracked blocks in sections outside the frustum or the distance limit last frame
+    public int getCulledBlocks() {
+        return culledBlocks;
+    }
+
+    // Appends the meshes of one layer that survived the last cull() to the outline buffer
+    public void render(int layerIndex, MatrixStack matrices, Vec3d cameraPos, VertexConsumer consumer) {
+        if (layerIndex >= visible.size()) {
+            return;
+        }
+        Matrix4f matrix = matrices.peek().getPositionMatrix();
+        ObjectArrayList<SectionMesh> meshes = visible.get(layerIndex);
+        for (int i = 0; i < meshes.size(); i++) {
+            replay(meshes.get(i), matrix, cameraPos, consumer);
+        }
+    }
+
+    public void setMergeHull(boolean mergeHull) {
+        if (this.mergeHull != mergeHull) {
+            this.mergeHull = mergeHull;
+            clear();
+        }
+    }
+
+    // A tracked block changed state without leaving the tracked set, its model may differ
+    public void markDirty(int x, int y, int z) {
+        dirtySections.add(ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z)));
+    }
+
+    // Registers a mesh built elsewhere as if update() had built it, for tests without a world
+    void addMesh(SectionMesh mesh) {
+        while (layers.size() <= mesh.layerIndex) {
+            layers.add(new Long2ObjectOpenHashMap<>());
+        }
+        layers.get(mesh.layerIndex).put(mesh.sectionKey, mesh);
+        added.add(mesh);
+        refreshOrder();
+    }
+
+    // Forgets every mesh, e.g. after a resource reload moved sprites around the atlas
+    public void clear() {
+        layers.clear();
+        ordered.clear();
+        added.clear();
+        visible.clear();
+        dirtySections.clear();
+        generation = -1;
+        world = null;
+    }
+
+    // Drops meshes that were replaced or removed and sorts the new ones into place
+    private void refreshOrder() {
+        int kept = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            SectionMesh mesh = ordered.get(i);
+            if (mesh.layerIndex < layers.size() && layers.get(mesh.layerIndex).get(mesh.sectionKey) == mesh) {
+                ordered.set(kept++, mesh);
+            }
+        }
+        ordered.size(kept);
+        for (int i = 0; i < added.size(); i++) {
+            SectionMesh mesh = added.get(i);
+            updateDistance(mesh);
+            ordered.add(mesh);
+        }
+        added.clear();
+        insertionSort();
+    }
+
+    // Squared distance in sections between the camera's section and the mesh's section
+    private void updateDistance(SectionMesh mesh) {
+        int dx = ChunkSectionPos.unpackX(mesh.sectionKey) - cameraSectionX;
+        int dy = ChunkSectionPos.unpackY(mesh.sectionKey) - cameraSectionY;
+        int dz = ChunkSectionPos.unpackZ(mesh.sectionKey) - cameraSectionZ;
+        mesh.distance = dx * dx + dy * dy + dz * dz;
+    }
+
+    // Linear on the nearly sorted lists left by small camera moves and a few new sections
+    private void insertionSort() {
+        for (int i = 1; i < ordered.size(); i++) {
+            SectionMesh mesh = ordered.get(i);
+            int j = i - 1;
+            while (j >= 0 && ordered.get(j).distance > mesh.distance) {
+                ordered.set(j + 1, ordered.get(j));
+                j--;
+            }
+            ordered.set(j + 1, mesh);
+        }
+    }
+
+    private static double squaredDistance(Box box, Vec3d pos) {
+        double dx = Math.max(Math.max(box.minX - pos.x, pos.x - box.maxX), 0.0);
+        double dy = Math.max(Math.max(box.minY - pos.y, pos.y - box.maxY), 0.0);
+        double dz = Math.max(Math.max(box.minZ - pos.z, pos.z - box.maxZ), 0.0);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private SectionMesh build(
+        long sectionKey,
+        long[] bits,
+        int layerIndex,
+        TrackedLayer layer,
+        World world,
+        BlockRenderManager blockRenderManager
+    ) {
+        int baseX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey));
+        int baseY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey));
+        int baseZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey));
+
+        capture.reset();
+        long[] hull = mergeHull ? hullMesher.collect(sectionKey, bits, layer, world) : null;
+        SectionBitStore.forEachInSection(sectionKey, bits, (x, y, z) -> {
+            if (hull != null) {
+                int index = SectionBitStore.localIndex(x, y, z);
+                if ((hull[index >>> 6] & (1L << index)) != 0) {
+                    return;
+                }
+            }
+            buildPos.set(x, y, z);
+            buildMatrices.push();
+            buildMatrices.translate(x - baseX, y - baseY, z - baseZ);
+            long start = System.nanoTime();
+            boolean cube = CustomBlockOutlineRenderer.renderInvisibleBlock(
+                world.getBlockState(buildPos), buildPos, buildMatrices, capture, blockRenderManager, world);
+            stats.record(cube, System.nanoTime() - start);
+            buildMatrices.pop();
+        });
+        if (hull != null) {
+            hullMesher.emit(hullSprite(sectionKey, hull, world, blockRenderManager), capture);
+        }
+        return new SectionMesh(sectionKey, layerIndex, bits, capture.toArray(), capture.vertexCount);
+    }
+
+    // Particle sprite of the first hull block, any opaque sprite samples the same for the outline
+    private Sprite hullSprite(long sectionKey, long[] hull, World world, BlockRenderManager blockRenderManager) {
+        for (int word = 0; word < SectionBitStore.WORDS_PER_SECTION; word++) {
+            if (hull[word] != 0) {
+                int index = (word << 6) | Long.numberOfTrailingZeros(hull[word]);
+                buildPos.set(
+                    ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey)) + (index & 15),
+                    ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey)) + (index >>> 8),
+                    ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey)) + ((index >>> 4) & 15)
+                );
+                break;
+            }
+        }
+        return blockRenderManager.getModels().getModelParticleSprite(world.getBlockState(buildPos));
+    }
+
+    private void replay(SectionMesh mesh, Matrix4f matrix, Vec3d cameraPos, VertexConsumer consumer) {
+        // The one translation per section: section origin relative to the camera
+        float offsetX = (float) (mesh.baseX - cameraPos.x);
+        float offsetY = (float) (mesh.baseY - cameraPos.y);
+        float offsetZ = (float) (mesh.baseZ - cameraPos.z);
+        float[] data = mesh.vertices;
+        int end = mesh.vertexCount * SectionMesh.FLOATS_PER_VERTEX;
+        for (int i = 0; i < end; i += SectionMesh.FLOATS_PER_VERTEX) {
+            matrix.transformPosition(data[i] + offsetX, data[i + 1] + offsetY, data[i + 2] + offsetZ, transformed);
+            consumer.vertex(
+                transformed.x, transformed.y, transformed.z,
+                INVISIBLE_COLOR,
+                data[i + 3], data[i + 4],
+                OverlayTexture.DEFAULT_UV,
+                LightmapTextureManager.MAX_LIGHT_COORDINATE,
+                data[i + 5], data[i + 6], data[i + 7]
+            );
+        }
+    }
+
+    // Cost of the last rebuild per block, split by the path each block took. Comparing the two
+    // averages shows what the cube fast path saves over the model renderer.
+    private static final class BuildStats {
+        int sections;
+        int cubeBlocks;
+        int modelBlocks;
+        long cubeNanos;
+        long modelNanos;
+
+        void reset() {
+            sections = 0;
+            cubeBlocks = 0;
+            modelBlocks = 0;
+            cubeNanos = 0;
+            modelNanos = 0;
+        }
+
+        void record(boolean cube, long nanos) {
+            if (cube) {
+                cubeBlocks++;
+                cubeNanos += nanos;
+            } else {
+                modelBlocks++;
+                modelNanos += nanos;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "rebuilt %d sections, %d cube blocks at %.0f ns/block, %d model blocks at %.0f ns/block",
+                sections,
+                cubeBlocks, cubeBlocks == 0 ? 0.0 : (double) cubeNanos / cubeBlocks,
+                modelBlocks, modelBlocks == 0 ? 0.0 : (double) modelNanos / modelBlocks
+            );
+        }
+    }
+
+    // Records what the model renderer emits: position, texture and normal are kept, color,
+    // light and overlay are dropped since the faces are never visible anyway
+    private static final class MeshCapture implements VertexConsumer {
+        private float[] data = new float[SectionMesh.FLOATS_PER_VERTEX * 1024];
+        private int vertexCount;
+
+        void reset() {
+            vertexCount = 0;
+        }
+
+        float[] toArray() {
+            return Arrays.copyOf(data, vertexCount * SectionMesh.FLOATS_PER_VERTEX);
+        }
+
+        @Override
+        public VertexConsumer vertex(float x, float y, float z) {
+            int offset = vertexCount * SectionMesh.FLOATS_PER_VERTEX;
+            if (offset + SectionMesh.FLOATS_PER_VERTEX > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[offset] = x;
+            data[offset + 1] = y;
+            data[offset + 2] = z;
+            vertexCount++;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer color(int red, int green, int blue, int alpha) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer texture(float u, float v) {
+            int offset = (vertexCount - 1) * SectionMesh.FLOATS_PER_VERTEX;
+            data[offset + 3] = u;
+            data[offset + 4] = v;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer overlay(int u, int v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer light(int u, int v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer normal(float x, float y, float z) {
+            int offset = (vertexCount - 1) * SectionMesh.FLOATS_PER_VERTEX;
+            data[offset + 5] = x;
+            data[offset + 6] = y;
+            data[offset + 7] = z;
+            return this;
+        }
+    }
+}
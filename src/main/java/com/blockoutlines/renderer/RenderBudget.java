@@ -0,0 +1,56 @@
+package com.blockoutlines.renderer;
+
+// Caps the outline vertices drawn per frame so a huge tracked set cannot drag the frame rate
+// down without limit. The cap follows the measured frame time: it shrinks while frames take
+// longer than the target frame rate allows and grows back once there is headroom again.
+// With no target frame rate the budget is unlimited.
+final class RenderBudget {
+    static final int UNLIMITED = Integer.MAX_VALUE;
+    // Never go below this, a few veins must always be drawn
+    private static final int MIN_VERTICES = 4096;
+    private static final int MAX_VERTICES = 4 * 1024 * 1024;
+    // Weight of the newest frame in the smoothed frame time
+    private static final double SMOOTHING = 0.1;
+
+    private int targetFps;
+    private int vertexBudget = UNLIMITED;
+    private long lastFrameNanos;
+    private double smoothedFrameNanos;
+
+    // 0 turns the budget off
+    void setTargetFps(int targetFps) {
+        this.targetFps = targetFps;
+        this.vertexBudget = targetFps > 0 ? MAX_VERTICES : UNLIMITED;
+        this.smoothedFrameNanos = 0;
+    }
+
+    int getTargetFps() {
+        return targetFps;
+    }
+
+    int getVertexBudget() {
+        return vertexBudget;
+    }
+
+    // Called once per frame, lastDrawn is how many vertices the previous frame drew
+    void onFrame(long now, int lastDrawn) {
+        long frameNanos = lastFrameNanos == 0 ? 0 : now - lastFrameNanos;
+        lastFrameNanos = now;
+        if (targetFps <= 0 || frameNanos <= 0) {
+            return;
+        }
+
+        smoothedFrameNanos = smoothedFrameNanos == 0
+            ? frameNanos
+            : smoothedFrameNanos + (frameNanos - smoothedFrameNanos) * SMOOTHING;
+        double targetNanos = 1_000_000_000.0 / targetFps;
+
+        if (smoothedFrameNanos > targetNanos * 1.05) {
+            // Shrink from what was actually drawn, a budget far above that would take many frames to bite
+            int base = Math.min(vertexBudget, Math.max(lastDrawn, MIN_VERTICES));
+            vertexBudget = Math.max(MIN_VERTICES, (int) (base * 0.9));
+        } else if (smoothedFrameNanos < targetNanos * 0.9 && vertexBudget < MAX_VERTICES) {
+            vertexBudget = (int) Math.min(MAX_VERTICES, vertexBudget * 1.05 + 64);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.blockoutlines.renderer;
+
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.util.Arrays;
+
+// Outline geometry of the tracked blocks of one target inside one chunk section. Positions are
+// relative to the section origin, so the mesh stays valid while the camera moves.
+final class SectionMesh {
+    // x, y, z, u, v, normal x, normal y, normal z
+    static final int FLOATS_PER_VERTEX = 8;
+
+    final long sectionKey;
+    // Snapshot layer (target) the mesh belongs to
+    final int layerIndex;
+    final int blockCount;
+    final int baseX;
+    final int baseY;
+    final int baseZ;
+    final float[] vertices;
+    final int vertexCount;
+    // World space bounds of the emitted geometry, used for frustum and distance culling
+    final Box bounds;
+    // Squared section distance to the camera, maintained by the cache for nearest-first ordering
+    int distance;
+    // Mask the mesh was built from, compared against the snapshot to find changed sections
+    private long[] sourceBits;
+
+    SectionMesh(long sectionKey, int layerIndex, long[] sourceBits, float[] vertices, int vertexCount) {
+        this.sectionKey = sectionKey;
+        this.layerIndex = layerIndex;
+        this.blockCount = countBits(sourceBits);
+        this.baseX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey));
+        this.baseY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey));
+        this.baseZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey));
+        this.sourceBits = sourceBits;
+        this.vertices = vertices;
+        this.vertexCount = vertexCount;
+        this.bounds = computeBounds();
+    }
+
+    private static int countBits(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private Box computeBounds() {
+        if (vertexCount == 0) {
+            return new Box(baseX, baseY, baseZ, baseX + 16, baseY + 16, baseZ + 16);
+        }
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertexCount * FLOATS_PER_VERTEX; i += FLOATS_PER_VERTEX) {
+            minX = Math.min(minX, vertices[i]);
+            minY = Math.min(minY, vertices[i + 1]);
+            minZ = Math.min(minZ, vertices[i + 2]);
+            maxX = Math.max(maxX, vertices[i]);
+            maxY = Math.max(maxY, vertices[i + 1]);
+            maxZ = Math.max(maxZ, vertices[i + 2]);
+        }
+        return new Box(baseX + minX, baseY + minY, baseZ + minZ, baseX + maxX, baseY + maxY, baseZ + maxZ);
+    }
+
+    // Snapshots share unchanged masks, so an identical array means an identical section. A full
+    // rescan hands out new arrays for every section, those are compared by content instead.
+    boolean isBuiltFrom(long[] bits) {
+        if (sourceBits == bits) {
+            return true;
+        }
+        if (Arrays.equals(sourceBits, bits)) {
+            sourceBits = bits;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,202 @@
+package com.blockoutlines.scan;
+
+import com.blockoutlines.scan.SectionScanner.CapturedSection;
+import com.blockoutlines.scan.SectionScanner.SectionSource;
+import com.blockoutlines.target.TargetMatcher;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.PalettedContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The client thread half of a scan, resumable: walks the sections of a box column by column
+// and stops once its time slice is used up, carrying on from the same section next time.
+// Capturing the whole box at once is one call to advance() with Long.MAX_VALUE as deadline.
+//
+// Sections copied in different ticks can be a few ticks apart in time. Block changes in
+// between are replayed over the result the same way as changes during the worker scan.
+public class CaptureCursor {
+    private final int minX, minY, minZ;
+    private final int maxX, maxY, maxZ;
+    private final int minSectionX, maxSectionX;
+    private final int minSectionY, maxSectionY;
+    private final int minSectionZ, maxSectionZ;
+    private final ScanVolume volume;
+    private final ScanVolume previous;
+    private final TargetMatcher matcher;
+    private final ScanStats stats;
+    private final List<CapturedSection> captured = new ArrayList<>();
+
+    // Next section to look at
+    private int sectionX;
+    private int sectionY;
+    private int sectionZ;
+
+    // Inclusive box [min, max], the Y range is clamped to the sections the source has
+    public CaptureCursor(
+        SectionSource source,
+        int minX, int minY, int minZ,
+        int maxX, int maxY, int maxZ,
+        TargetMatcher matcher,
+        ScanStats stats
+    ) {
+        this(source, minX, minY, minZ, maxX, maxY, maxZ, null, matcher, stats);
+    }
+
+    // The whole volume
+    public CaptureCursor(SectionSource source, ScanVolume volume, TargetMatcher matcher, ScanStats stats) {
+        this(
+            source,
+            volume.minX(), volume.minY(), volume.minZ(),
+            volume.maxX(), volume.maxY(), volume.maxZ(),
+            volume, matcher, stats
+        );
+    }
+
+    // What changes when the scan window moves from previous to volume: every section of the
+    // new volume except those both volumes cover in full, which already hold the right result
+    public CaptureCursor(SectionSource source, ScanVolume previous, ScanVolume volume, TargetMatcher matcher, ScanStats stats) {
+        this(
+            source,
+            volume.minX(), volume.minY(), volume.minZ(),
+            volume.maxX(), volume.maxY(), volume.maxZ(),
+            volume, previous, matcher, stats
+        );
+    }
+
+    // The part of the volume inside the box, such as a single chunk column. Sections the
+    // shape misses are skipped before their block data is touched.
+    public CaptureCursor(
+        SectionSource source,
+        int minX, int minY, int minZ,
+        int maxX, int maxY, int maxZ,
+        ScanVolume volume,
+        TargetMatcher matcher,
+        ScanStats stats
+    ) {
+        this(source, minX, minY, minZ, maxX, maxY, maxZ, volume, null, matcher, stats);
+    }
+
+    private CaptureCursor(
+        SectionSource source,
+        int minX, int minY, int minZ,
+        int maxX, int maxY, int maxZ,
+        ScanVolume volume,
+        ScanVolume previous,
+        TargetMatcher matcher,
+        ScanStats stats
+    ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.volume = volume;
+        this.previous = previous;
+        this.matcher = matcher;
+        this.stats = stats;
+        this.minSectionX = ChunkSectionPos.getSectionCoord(minX);
+        this.maxSectionX = ChunkSectionPos.getSectionCoord(maxX);
+        this.minSectionZ = ChunkSectionPos.getSectionCoord(minZ);
+        this.maxSectionZ = ChunkSectionPos.getSectionCoord(maxZ);
+        this.minSectionY = Math.max(ChunkSectionPos.getSectionCoord(minY), source.getBottomSectionCoord());
+        this.maxSectionY = Math.min(ChunkSectionPos.getSectionCoord(maxY), source.getTopSectionCoord() - 1);
+        this.sectionX = minSectionX;
+        this.sectionY = minSectionY;
+        this.sectionZ = minSectionZ;
+        stats.legacyLookups += (long) Math.max(0, maxX - minX + 1)
+            * Math.max(0, maxY - minY + 1)
+            * Math.max(0, maxZ - minZ + 1);
+    }
+
+    // Captures sections until the box is done or System.nanoTime() passes deadlineNanos.
+    // At least one section is captured per call, so a capture always finishes eventually.
+    // Returns whether the whole box has been captured.
+    public boolean advance(SectionSource source, long deadlineNanos) {
+        long start = System.nanoTime();
+        stats.captureSlices++;
+        try {
+            // Loaded state is asked for again when resuming, the column may have unloaded since
+            boolean columnLoaded = false;
+            while (sectionX <= maxSectionX) {
+                if (sectionY > maxSectionY) {
+                    nextColumn();
+                    columnLoaded = false;
+                    continue;
+                }
+                if (volume != null && !volume.intersectsSection(sectionX, sectionY, sectionZ)) {
+                    stats.sectionsSkippedShape++;
+                    sectionY++;
+                    continue;
+                }
+                if (previous != null && previous.coversSection(sectionX, sectionY, sectionZ)
+                    && volume.coversSection(sectionX, sectionY, sectionZ)) {
+                    stats.sectionsKept++;
+                    sectionY++;
+                    continue;
+                }
+                if (!columnLoaded) {
+                    if (!source.isColumnLoaded(sectionX, sectionZ)) {
+                        stats.sectionsSkippedUnloaded += maxSectionY - sectionY + 1;
+                        nextColumn();
+                        continue;
+                    }
+                    columnLoaded = true;
+                }
+
+                captureSection(source.getSection(sectionX, sectionY, sectionZ));
+                sectionY++;
+                if (System.nanoTime() >= deadlineNanos) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            stats.captureNanos += System.nanoTime() - start;
+        }
+    }
+
+    public boolean isDone() {
+        return sectionX > maxSectionX;
+    }
+
+    public List<CapturedSection> getSections() {
+        return captured;
+    }
+
+    public ScanStats getStats() {
+        return stats;
+    }
+
+    private void nextColumn() {
+        sectionY = minSectionY;
+        if (++sectionZ > maxSectionZ) {
+            sectionZ = minSectionZ;
+            sectionX++;
+        }
+    }
+
+    private void captureSection(PalettedContainer<BlockState> blocks) {
+        if (blocks == null) {
+            stats.sectionsSkippedEmpty++;
+            return;
+        }
+        if (!blocks.hasAny(matcher.asPredicate())) {
+            stats.sectionsSkippedPalette++;
+            return;
+        }
+
+        int baseX = ChunkSectionPos.getBlockCoord(sectionX);
+        int baseY = ChunkSectionPos.getBlockCoord(sectionY);
+        int baseZ = ChunkSectionPos.getBlockCoord(sectionZ);
+        captured.add(new CapturedSection(
+            baseX, baseY, baseZ,
+            blocks.copy(),
+            Math.max(minX - baseX, 0), Math.max(minY - baseY, 0), Math.max(minZ - baseZ, 0),
+            Math.min(maxX - baseX, 15), Math.min(maxY - baseY, 15), Math.min(maxZ - baseZ, 15),
+            volume == null || volume.coversSectionShape(sectionX, sectionY, sectionZ) ? null : volume
+        ));
+    }
+}
@@ -0,0 +1,119 @@
+package com.blockoutlines.scan;
+
+import com.blockoutlines.target.OutlineTarget;
+import com.blockoutlines.target.TargetMatcher;
+import com.blockoutlines.tracking.SectionBitStore;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.List;
+
+// One unit of background scan work: the captured sections, what to match and where the
+// worker leaves its results. Everything but the results is fixed once the job is built.
+public class ScanJob {
+    public enum Kind {
+        FULL,   // Replaces the whole tracked set
+        CHUNK,  // Replaces the tracked positions of a single chunk
+        WINDOW  // Moves the scan window: replaces the sections whose coverage changed, drops the ones left behind
+    }
+
+    private final Kind kind;
+    private final int generation;
+    private final ChunkPos chunkPos;
+    private final int radius;
+    private final List<OutlineTarget> targets;
+    private final TargetMatcher matcher;
+    private final List<SectionScanner.CapturedSection> sections;
+    private final ScanStats stats;
+    private final ScanVolume previousVolume;
+    private final ScanVolume volume;
+    private final SectionBitStore[] results;
+
+    public ScanJob(
+        Kind kind,
+        int generation,
+        ChunkPos chunkPos,
+        int radius,
+        List<OutlineTarget> targets,
+        TargetMatcher matcher,
+        List<SectionScanner.CapturedSection> sections,
+        ScanStats stats
+    ) {
+        this(kind, generation, chunkPos, radius, targets, matcher, sections, stats, null, null);
+    }
+
+    // previousVolume and volume are where a WINDOW job moves the scan window from and to
+    public ScanJob(
+        Kind kind,
+        int generation,
+        ChunkPos chunkPos,
+        int radius,
+        List<OutlineTarget> targets,
+        TargetMatcher matcher,
+        List<SectionScanner.CapturedSection> sections,
+        ScanStats stats,
+        ScanVolume previousVolume,
+        ScanVolume volume
+    ) {
+        this.kind = kind;
+        this.generation = generation;
+        this.chunkPos = chunkPos;
+        this.radius = radius;
+        this.targets = targets;
+        this.matcher = matcher;
+        this.sections = sections;
+        this.stats = stats;
+        this.previousVolume = previousVolume;
+        this.volume = volume;
+        this.results = new SectionBitStore[matcher.getTargetCount()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new SectionBitStore();
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public ChunkPos getChunkPos() {
+        return chunkPos;
+    }
+
+    // Scan radius and the targets the matcher was compiled from, for telemetry
+    public int getRadius() {
+        return radius;
+    }
+
+    public List<OutlineTarget> getTargets() {
+        return targets;
+    }
+
+    public TargetMatcher getMatcher() {
+        return matcher;
+    }
+
+    public List<SectionScanner.CapturedSection> getSections() {
+        return sections;
+    }
+
+    public ScanStats getStats() {
+        return stats;
+    }
+
+    public ScanVolume getPreviousVolume() {
+        return previousVolume;
+    }
+
+    public ScanVolume getVolume() {
+        return volume;
+    }
+
+    // One store per target index, filled by the worker and only read once the job has been
+    // handed back as completed
+    public SectionBitStore[] getResults() {
+        return results;
+    }
+}
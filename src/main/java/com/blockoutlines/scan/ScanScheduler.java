@@ -0,0 +1,109 @@
+package com.blockoutlines.scan;
+
+import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.stats.ScanEvent;
+import com.blockoutlines.stats.Telemetry;
+import jdk.jfr.EventType;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Runs scan jobs on a single background worker. Jobs carry the generation they were
+// created in; bumping the generation cancels everything older, both while it is still
+// running on the worker and when its result would otherwise be handed back.
+public class ScanScheduler {
+    // Checked before an event is even created, so without a flight recording scans pay nothing
+    private static final EventType SCAN_EVENT = EventType.getEventType(ScanEvent.class);
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Block Outlines Scanner");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    // Only ever touched from the worker thread
+    private final SectionScanner scanner = new SectionScanner();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Queue<ScanJob> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    // Cancels every job created before this call
+    public void cancelAll() {
+        generation.incrementAndGet();
+    }
+
+    public boolean isBusy() {
+        return inFlight.get() > 0;
+    }
+
+    public void submit(ScanJob job) {
+        inFlight.incrementAndGet();
+        worker.execute(() -> {
+            try {
+                ScanEvent event = SCAN_EVENT.isEnabled() ? new ScanEvent() : null;
+                if (event != null) {
+                    event.begin();
+                }
+                long start = System.nanoTime();
+                scanner.scan(
+                    job.getSections(),
+                    job.getMatcher(),
+                    job.getStats(),
+                    job.getResults(),
+                    () -> job.getGeneration() != generation.get()
+                );
+                job.getStats().durationNanos = System.nanoTime() - start;
+                Telemetry.INSTANCE.recordScan(job.getKind(), job.getStats());
+                if (event != null) {
+                    commit(event, job);
+                }
+                if (job.getGeneration() == generation.get()) {
+                    completed.add(job);
+                }
+            } catch (RuntimeException e) {
+                BlockOutlinesClient.LOGGER.error("Block scan failed", e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private static void commit(ScanEvent event, ScanJob job) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        ScanStats stats = job.getStats();
+        event.kind = job.getKind().name();
+        event.radius = job.getRadius();
+        event.targets = job.getTargets().stream()
+            .map(target -> target.filter().asString())
+            .collect(Collectors.joining(", "));
+        event.blocksVisited = stats.blocksVisited;
+        event.sectionsVisited = stats.sectionsVisited;
+        event.sectionsSkipped = stats.getSectionsSkipped();
+        event.matches = stats.matches;
+        event.captureTime = stats.captureNanos;
+        event.captureTicks = stats.captureSlices;
+        event.commit();
+    }
+
+    // Next finished job that is still current, or null when there is none
+    public ScanJob pollCompleted() {
+        ScanJob job;
+        while ((job = completed.poll()) != null) {
+            if (job.getGeneration() == generation.get()) {
+                return job;
+            }
+        }
+        return null;
+    }
+}
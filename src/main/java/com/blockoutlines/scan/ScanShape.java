@@ -0,0 +1,44 @@
+package com.blockoutlines.scan;
+
+// Shape of the scanned volume around the player, all of them fit in the cube of the scan
+// radius. A sphere holds about 52% of the cube's blocks, a vertical cylinder about 79%.
+public enum ScanShape {
+    CUBE("Cube"),
+    SPHERE("Sphere"),
+    CYLINDER("Cylinder"); // Vertical axis, the full cube height
+
+    private final String displayName;
+
+    ScanShape(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public ScanShape next() {
+        ScanShape[] shapes = values();
+        return shapes[(ordinal() + 1) % shapes.length];
+    }
+
+    // Offsets from the center, each already within the radius on its own axis
+    public boolean contains(long dx, long dy, long dz, int radius) {
+        long radiusSq = (long) radius * radius;
+        return switch (this) {
+            case CUBE -> true;
+            case SPHERE -> dx * dx + dy * dy + dz * dz <= radiusSq;
+            case CYLINDER -> dx * dx + dz * dz <= radiusSq;
+        };
+    }
+
+    // Largest |dx| inside the shape on the row at (dy, dz), -1 if the row misses the shape
+    public int halfWidth(int dy, int dz, int radius) {
+        long remaining = switch (this) {
+            case CUBE -> (long) radius * radius;
+            case SPHERE -> (long) radius * radius - (long) dy * dy - (long) dz * dz;
+            case CYLINDER -> (long) radius * radius - (long) dz * dz;
+        };
+        return remaining < 0 ? -1 : Math.min(radius, (int) Math.sqrt(remaining));
+    }
+}
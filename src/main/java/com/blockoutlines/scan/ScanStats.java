@@ -0,0 +1,45 @@
+package com.blockoutlines.scan;
+
+public class ScanStats {
+    public long blocksVisited;
+    public int sectionsVisited;
+    public int sectionsSkippedUnloaded;
+    public int sectionsSkippedEmpty;
+    public int sectionsSkippedPalette;
+    public int sectionsSkippedShape; // Outside the scan shape or Y band, never looked at
+    public int sectionsKept; // Inside the scan window before and after it moved, not scanned again
+    public int matches;
+    public long legacyLookups; // What the old per-BlockPos cube loop would have cost
+    public long durationNanos;
+    public long captureNanos; // Client thread part, copying the sections for the worker
+    public int captureSlices; // Ticks the capture was spread over
+
+    public void reset() {
+        blocksVisited = 0;
+        sectionsVisited = 0;
+        sectionsSkippedUnloaded = 0;
+        sectionsSkippedEmpty = 0;
+        sectionsSkippedPalette = 0;
+        sectionsSkippedShape = 0;
+        sectionsKept = 0;
+        matches = 0;
+        legacyLookups = 0;
+        durationNanos = 0;
+        captureNanos = 0;
+        captureSlices = 0;
+    }
+
+    public int getSectionsSkipped() {
+        return sectionsSkippedUnloaded + sectionsSkippedEmpty + sectionsSkippedPalette + sectionsSkippedShape;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%.2f ms (capture %.2f ms over %d ticks), visited %d blocks in %d sections, skipped %d sections (unloaded %d, empty %d, palette %d, shape %d), kept %d sections, %d matches, legacy cost %d lookups",
+            durationNanos / 1_000_000.0, captureNanos / 1_000_000.0, captureSlices, blocksVisited, sectionsVisited, getSectionsSkipped(),
+            sectionsSkippedUnloaded, sectionsSkippedEmpty, sectionsSkippedPalette, sectionsSkippedShape,
+            sectionsKept, matches, legacyLookups
+        );
+    }
+}
@@ -0,0 +1,121 @@
+package com.blockoutlines.scan;
+
+import net.minecraft.util.math.ChunkSectionPos;
+
+// What a scan covers: a shape of the scan radius around a center, cut to an inclusive Y range.
+// The Y range is already clamped to the world and the optional absolute Y band, so cells
+// above build height or below bedrock are never part of it. Immutable.
+public record ScanVolume(
+    int centerX, int centerY, int centerZ,
+    int radius,
+    ScanShape shape,
+    int minY, int maxY
+) {
+    // No Y band, the whole world height within the radius
+    public static final int NO_MIN_Y = Integer.MIN_VALUE;
+    public static final int NO_MAX_Y = Integer.MAX_VALUE;
+    // Past the world border, so a volume this wide holds every column of a world
+    private static final int WORLD_RADIUS = 1 << 25;
+
+    // worldMinY and worldMaxY are the world's bottom and top block Y, both inclusive
+    public static ScanVolume around(
+        int centerX, int centerY, int centerZ,
+        int radius,
+        ScanShape shape,
+        int bandMinY, int bandMaxY,
+        int worldMinY, int worldMaxY
+    ) {
+        int minY = Math.max(Math.max(centerY - radius, bandMinY), worldMinY);
+        int maxY = Math.min(Math.min(centerY + radius, bandMaxY), worldMaxY);
+        return new ScanVolume(centerX, centerY, centerZ, radius, shape, minY, maxY);
+    }
+
+    // Every column of the world, cut to the Y band, for scanning whole chunks as they load
+    public static ScanVolume allColumns(int bandMinY, int bandMaxY, int worldMinY, int worldMaxY) {
+        return around(0, 0, 0, WORLD_RADIUS, ScanShape.CUBE, bandMinY, bandMaxY, worldMinY, worldMaxY);
+    }
+
+    public int minX() {
+        return centerX - radius;
+    }
+
+    public int maxX() {
+        return centerX + radius;
+    }
+
+    public int minZ() {
+        return centerZ - radius;
+    }
+
+    public int maxZ() {
+        return centerZ + radius;
+    }
+
+    public boolean isEmpty() {
+        return minY > maxY;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return y >= minY && y <= maxY
+            && Math.abs(x - centerX) <= radius
+            && Math.abs(z - centerZ) <= radius
+            && shape.contains(x - centerX, y - centerY, z - centerZ, radius);
+    }
+
+    // Whether any cell of the section is inside, checked against the section's nearest point
+    public boolean intersectsSection(int sectionX, int sectionY, int sectionZ) {
+        int baseY = ChunkSectionPos.getBlockCoord(sectionY);
+        if (baseY > maxY || baseY + 15 < minY) {
+            return false;
+        }
+        return shape.contains(
+            nearest(centerX, ChunkSectionPos.getBlockCoord(sectionX)),
+            nearest(centerY, baseY),
+            nearest(centerZ, ChunkSectionPos.getBlockCoord(sectionZ)),
+            radius
+        );
+    }
+
+    // Whether the shape covers the section's full width, checked against its farthest point.
+    // Such sections need no per-row trimming, only the box bounds.
+    public boolean coversSectionShape(int sectionX, int sectionY, int sectionZ) {
+        return shape.contains(
+            farthest(centerX, ChunkSectionPos.getBlockCoord(sectionX)),
+            farthest(centerY, ChunkSectionPos.getBlockCoord(sectionY)),
+            farthest(centerZ, ChunkSectionPos.getBlockCoord(sectionZ)),
+            radius
+        );
+    }
+
+    // Whether every cell of the section is inside, box bounds and Y range included. Such a
+    // section scans the same under either of two volumes that both cover it.
+    public boolean coversSection(int sectionX, int sectionY, int sectionZ) {
+        int baseX = ChunkSectionPos.getBlockCoord(sectionX);
+        int baseY = ChunkSectionPos.getBlockCoord(sectionY);
+        int baseZ = ChunkSectionPos.getBlockCoord(sectionZ);
+        return baseX >= minX() && baseX + 15 <= maxX()
+            && baseY >= minY && baseY + 15 <= maxY
+            && baseZ >= minZ() && baseZ + 15 <= maxZ()
+            && coversSectionShape(sectionX, sectionY, sectionZ);
+    }
+
+    // Whether the boxes of the two volumes share any cell
+    public boolean overlaps(ScanVolume other) {
+        return minX() <= other.maxX() && maxX() >= other.minX()
+            && minY <= other.maxY && maxY >= other.minY
+            && minZ() <= other.maxZ() && maxZ() >= other.minZ();
+    }
+
+    // Largest |dx| from the center still inside on the row at (y, z), -1 if none
+    public int rowHalfWidth(int y, int z) {
+        return shape.halfWidth(y - centerY, z - centerZ, radius);
+    }
+
+    private static int nearest(int center, int base) {
+        return center < base ? base - center : Math.max(0, center - (base + 15));
+    }
+
+    private static int farthest(int center, int base) {
+        return Math.max(Math.abs(center - base), Math.abs(center - (base + 15)));
+    }
+}
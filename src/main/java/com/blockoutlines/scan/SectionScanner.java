@@ -0,0 +1,188 @@
+package com.blockoutlines.scan;
+
+import com.blockoutlines.target.TargetMatcher;
+import com.blockoutlines.tracking.SectionBitStore;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.collection.PaletteStorage;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.IdListPalette;
+import net.minecraft.world.chunk.Palette;
+import net.minecraft.world.chunk.PalettedContainer;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+// Scans a box one 16^3 chunk section at a time instead of one BlockPos at a time.
+// Sections that are unloaded, empty or whose palette cannot hold the target are skipped
+// without touching their block data; the rest are walked straight off the packed storage.
+//
+// Scanning is split in two: CaptureCursor.advance runs on the client thread and copies the
+// block containers of the sections worth scanning, in time slices, and scan() walks those
+// copies and is safe to run on a background thread while the world keeps changing.
+public class SectionScanner {
+    // Local palettes never grow past 8 bits for block states, beyond that the global palette is used
+    private static final int MAX_LOCAL_PALETTE_SIZE = 256;
+
+    // Target index per palette entry of the section being scanned
+    private int[] paletteTargets = new int[MAX_LOCAL_PALETTE_SIZE];
+
+    // A stable copy of one section plus the part of it that lies inside the scanned box.
+    // volume is set when the scan shape cuts through the section, each row is then trimmed
+    // to the shape; null when the box bounds alone are exact.
+    public record CapturedSection(
+        int baseX, int baseY, int baseZ,
+        PalettedContainer<BlockState> blocks,
+        int fromX, int fromY, int fromZ,
+        int toX, int toY, int toZ,
+        ScanVolume volume
+    ) {
+        public CapturedSection(
+            int baseX, int baseY, int baseZ,
+            PalettedContainer<BlockState> blocks,
+            int fromX, int fromY, int fromZ,
+            int toX, int toY, int toZ
+        ) {
+            this(baseX, baseY, baseZ, blocks, fromX, fromY, fromZ, toX, toY, toZ, null);
+        }
+    }
+
+    // Where CaptureCursor.advance reads sections from: the live client world, or a recorded capture
+    public interface SectionSource {
+        int getBottomSectionCoord();
+
+        // Exclusive
+        int getTopSectionCoord();
+
+        boolean isColumnLoaded(int sectionX, int sectionZ);
+
+        // The block states of a section in the column last reported loaded, null when the
+        // section is empty
+        PalettedContainer<BlockState> getSection(int sectionX, int sectionY, int sectionZ);
+    }
+
+    // The live client world as a section source
+    public static SectionSource sourceOf(World world) {
+        return new WorldSource(world);
+    }
+
+    // Sections of the loaded client chunks. CaptureCursor walks a column at a time, so the chunk
+    // of the last column is kept instead of being looked up for every section.
+    private static final class WorldSource implements SectionSource {
+        private final World world;
+        private WorldChunk chunk;
+
+        WorldSource(World world) {
+            this.world = world;
+        }
+
+        @Override
+        public int getBottomSectionCoord() {
+            return world.getBottomSectionCoord();
+        }
+
+        @Override
+        public int getTopSectionCoord() {
+            return world.getTopSectionCoord();
+        }
+
+        @Override
+        public boolean isColumnLoaded(int sectionX, int sectionZ) {
+            chunk = world.getChunkManager().getWorldChunk(sectionX, sectionZ, false);
+            return chunk != null;
+        }
+
+        @Override
+        public PalettedContainer<BlockState> getSection(int sectionX, int sectionY, int sectionZ) {
+            ChunkSection section = chunk.getSectionArray()[world.sectionCoordToIndex(sectionY)];
+            return section == null || section.isEmpty() ? null : section.getBlockStateContainer();
+        }
+    }
+
+    // Walks captured sections, stops early once cancelled reports true. Every target is
+    // matched in the same pass, out holds one store per target index.
+    public void scan(
+        List<CapturedSection> sections,
+        TargetMatcher matcher,
+        ScanStats stats,
+        SectionBitStore[] out,
+        BooleanSupplier cancelled
+    ) {
+        for (CapturedSection section : sections) {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            scanSection(section, matcher, stats, out);
+        }
+    }
+
+    private void scanSection(CapturedSection section, TargetMatcher matcher, ScanStats stats, SectionBitStore[] out) {
+        stats.sectionsVisited++;
+
+        PalettedContainer.Data<BlockState> data = section.blocks().data;
+        Palette<BlockState> palette = data.palette();
+        PaletteStorage storage = data.storage();
+
+        // With the global palette the storage holds raw state ids, which the matcher indexes
+        // directly. Local palettes are resolved once so the inner loop is an array lookup per cell.
+        boolean rawIds = palette instanceof IdListPalette;
+        if (!rawIds) {
+            int size = palette.getSize();
+            if (size > paletteTargets.length) {
+                paletteTargets = new int[size];
+            }
+            for (int i = 0; i < size; i++) {
+                paletteTargets[i] = matcher.targetOf(palette.get(i));
+            }
+        }
+
+        // Matches go straight into the target's occupancy mask for this section, no per-position objects
+        long[][] bits = new long[out.length][];
+        ScanVolume volume = section.volume();
+        long visited = 0;
+        for (int y = section.fromY(); y <= section.toY(); y++) {
+            for (int z = section.fromZ(); z <= section.toZ(); z++) {
+                int fromX = section.fromX();
+                int toX = section.toX();
+                if (volume != null) {
+                    // Cut the row to the shape, one square root per row rather than a test per cell
+                    int halfWidth = volume.rowHalfWidth(section.baseY() + y, section.baseZ() + z);
+                    if (halfWidth < 0) {
+                        continue;
+                    }
+                    fromX = Math.max(fromX, volume.centerX() - halfWidth - section.baseX());
+                    toX = Math.min(toX, volume.centerX() + halfWidth - section.baseX());
+                }
+                visited += Math.max(0, toX - fromX + 1);
+                
+                int rowIndex = (y << 8) | (z << 4);
+                for (int x = fromX; x <= toX; x++) {
+                    int index = rowIndex | x;
+                    int value = storage.get(index);
+                    int target = rawIds ? matcher.targetOfRawId(value) : paletteTargets[value];
+                    if (target != TargetMatcher.NO_TARGET) {
+                        if (bits[target] == null) {
+                            bits[target] = new long[SectionBitStore.WORDS_PER_SECTION];
+                        }
+                        bits[target][index >>> 6] |= 1L << index;
+                        stats.matches++;
+                    }
+                }
+            }
+        }
+
+        long sectionKey = ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(section.baseX()),
+            ChunkSectionPos.getSectionCoord(section.baseY()),
+            ChunkSectionPos.getSectionCoord(section.baseZ())
+        );
+        for (int target = 0; target < bits.length; target++) {
+            if (bits[target] != null) {
+                out[target].putSection(sectionKey, bits[target]);
+            }
+        }
+        stats.blocksVisited += visited;
+    }
+}
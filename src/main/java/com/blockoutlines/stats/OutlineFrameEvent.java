@@ -0,0 +1,46 @@
+package com.blockoutlines.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// The outline work of one frame as seen by Java Flight Recorder. The event spans the
+// outline draw call, or the culling step on frames where nothing was visible; culling and
+// mesh rebuilds are always in prepareTime.
+@Name("com.blockoutlines.OutlineFrame")
+@Label("Block Outlines Frame")
+@Category("Block Outlines")
+@Description("Culling and drawing the block outlines of one frame")
+@StackTrace(false)
+public class OutlineFrameEvent extends Event {
+    @Label("Blocks Drawn")
+    public int drawnBlocks;
+
+    @Label("Blocks Culled")
+    @Description("Outside the frustum or the distance limit")
+    public int culledBlocks;
+
+    @Label("Blocks Over Budget")
+    public int skippedBlocks;
+
+    @Label("Vertices")
+    public int vertices;
+
+    @Label("Outline Pass Forced")
+    public boolean outlinePassForced;
+
+    @Label("Prepare Time")
+    @Description("Mesh rebuilds and culling before the outline pass is decided on")
+    @Timespan(Timespan.NANOSECONDS)
+    public long prepareTime;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by culling and replay, -1 when the JVM cannot tell")
+    @DataAmount(DataAmount.BYTES)
+    public long allocatedBytes;
+}
@@ -0,0 +1,150 @@
+package com.blockoutlines.stats;
+
+import com.blockoutlines.scan.ScanStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// What scanning and outline rendering cost, as shown by the performance overlay and the F3
+// screen. Scans report when the client applies them, frames once the outline work of the
+// frame is done. Client thread only.
+public final class PerformanceStats {
+    private static final int SCAN_SAMPLES = 64;
+    private static final int FRAME_SAMPLES = 256;
+
+    private static final RollingWindow SCAN_NANOS = new RollingWindow(SCAN_SAMPLES);
+    private static final RollingWindow CAPTURE_NANOS = new RollingWindow(SCAN_SAMPLES);
+    private static final RollingWindow WINDOW_NANOS = new RollingWindow(SCAN_SAMPLES);
+    private static final RollingWindow CHUNK_NANOS = new RollingWindow(SCAN_SAMPLES);
+    private static final RollingWindow FRAME_NANOS = new RollingWindow(FRAME_SAMPLES);
+
+    // Last full scan
+    private static final ScanStats lastScan = new ScanStats();
+    private static boolean hasScan;
+
+    // Last window move
+    private static int windowSectionsVisited;
+    private static int windowSectionsKept;
+    private static boolean hasWindowScan;
+
+    // Chunk scans, the only ones when the loaded world is scanned
+    private static long chunkScans;
+    private static int chunkSectionsVisited;
+
+    // Last frame
+    private static int drawnBlocks;
+    private static int culledBlocks;
+    private static int skippedBlocks;
+    private static int drawnVertices;
+    private static boolean outlinePassForced;
+    private static long allocatedBytes = -1;
+
+    private PerformanceStats() {}
+
+    public static void recordScan(ScanStats stats) {
+        SCAN_NANOS.add(stats.durationNanos);
+        CAPTURE_NANOS.add(stats.captureNanos);
+        lastScan.blocksVisited = stats.blocksVisited;
+        lastScan.sectionsVisited = stats.sectionsVisited;
+        lastScan.sectionsSkippedUnloaded = stats.sectionsSkippedUnloaded;
+        lastScan.sectionsSkippedEmpty = stats.sectionsSkippedEmpty;
+        lastScan.sectionsSkippedPalette = stats.sectionsSkippedPalette;
+        lastScan.sectionsSkippedShape = stats.sectionsSkippedShape;
+        lastScan.matches = stats.matches;
+        lastScan.durationNanos = stats.durationNanos;
+        lastScan.captureNanos = stats.captureNanos;
+        lastScan.captureSlices = stats.captureSlices;
+        hasScan = true;
+    }
+
+    public static void recordWindowScan(ScanStats stats) {
+        WINDOW_NANOS.add(stats.durationNanos);
+        windowSectionsVisited = stats.sectionsVisited;
+        windowSectionsKept = stats.sectionsKept;
+        hasWindowScan = true;
+    }
+
+    public static void recordChunkScan(ScanStats stats) {
+        CHUNK_NANOS.add(stats.durationNanos);
+        chunkScans++;
+        chunkSectionsVisited = stats.sectionsVisited;
+    }
+
+    // Called every frame the outlines are enabled, so it must not allocate
+    public static void recordFrame(
+        long nanos,
+        int drawnBlocks,
+        int culledBlocks,
+        int skippedBlocks,
+        int drawnVertices,
+        boolean outlinePassForced,
+        long allocatedBytes
+    ) {
+        FRAME_NANOS.add(nanos);
+        PerformanceStats.drawnBlocks = drawnBlocks;
+        PerformanceStats.culledBlocks = culledBlocks;
+        PerformanceStats.skippedBlocks = skippedBlocks;
+        PerformanceStats.drawnVertices = drawnVertices;
+        PerformanceStats.outlinePassForced = outlinePassForced;
+        PerformanceStats.allocatedBytes = allocatedBytes;
+    }
+
+    public static void clear() {
+        SCAN_NANOS.clear();
+        CAPTURE_NANOS.clear();
+        WINDOW_NANOS.clear();
+        CHUNK_NANOS.clear();
+        FRAME_NANOS.clear();
+        lastScan.reset();
+        hasScan = false;
+        hasWindowScan = false;
+        chunkScans = 0;
+    }
+
+    // Display lines, tracked blocks and store memory come from the caller since only the
+    // client knows its current stores
+    public static List<String> lines(int trackedBlocks, long trackedMemoryBytes) {
+        List<String> lines = new ArrayList<>();
+        if (hasScan) {
+            lines.add(String.format(
+                "Scan: %s (avg %s, p99 %s), capture %s over %d ticks",
+                millis(SCAN_NANOS.getLast()), millis(SCAN_NANOS.getMean()),
+                millis(SCAN_NANOS.getPercentile(99)), millis(CAPTURE_NANOS.getLast()), lastScan.captureSlices
+            ));
+            lines.add(String.format(
+                "Visited %d blocks in %d sections, skipped %d sections",
+                lastScan.blocksVisited, lastScan.sectionsVisited, lastScan.getSectionsSkipped()
+            ));
+        } else if (chunkScans == 0) {
+            lines.add("Scan: waiting for the first scan");
+        }
+        if (hasWindowScan) {
+            lines.add(String.format(
+                "Window move: %s (avg %s), %d sections scanned, %d kept",
+                millis(WINDOW_NANOS.getLast()), millis(WINDOW_NANOS.getMean()), windowSectionsVisited, windowSectionsKept
+            ));
+        }
+        if (chunkScans > 0) {
+            lines.add(String.format(
+                "Chunk scans: %d, last %s (avg %s), %d sections scanned",
+                chunkScans, millis(CHUNK_NANOS.getLast()), millis(CHUNK_NANOS.getMean()), chunkSectionsVisited
+            ));
+        }
+        lines.add(String.format("Tracked: %d blocks, ~%d KB", trackedBlocks, trackedMemoryBytes / 1024));
+        lines.add(String.format(
+            "Render: %s (avg %s, p99 %s)",
+            millis(FRAME_NANOS.getLast()), millis(FRAME_NANOS.getMean()), millis(FRAME_NANOS.getPercentile(99))
+        ));
+        lines.add(String.format(
+            "Drawn %d blocks (%d vertices), culled %d, over budget %d",
+            drawnBlocks, drawnVertices, culledBlocks, skippedBlocks
+        ));
+        lines.add("Outline pass: " + (outlinePassForced ? "forced" : "not forced")
+            + (allocatedBytes >= 0 ? ", " + allocatedBytes + " B allocated" : ""));
+        return lines;
+    }
+
+    private static String millis(double nanos) {
+        return String.format("%.2f ms", nanos / 1_000_000.0);
+    }
+}
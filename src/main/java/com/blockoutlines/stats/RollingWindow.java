@@ -0,0 +1,60 @@
+package com.blockoutlines.stats;
+
+import java.util.Arrays;
+
+// The last N samples of a measurement in a ring buffer. Adding never allocates, percentiles
+// sort a scratch copy and are only meant to be asked for when they are displayed.
+public final class RollingWindow {
+    private final long[] values;
+    private final long[] sorted;
+    private int count;
+    private int next;
+
+    public RollingWindow(int capacity) {
+        this.values = new long[capacity];
+        this.sorted = new long[capacity];
+    }
+
+    public void add(long value) {
+        values[next] = value;
+        next = (next + 1) % values.length;
+        if (count < values.length) {
+            count++;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long getLast() {
+        return count == 0 ? 0 : values[(next - 1 + values.length) % values.length];
+    }
+
+    public double getMean() {
+        if (count == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return (double) sum / count;
+    }
+
+    // Nearest-rank percentile, 0 while empty
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(values, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(rank, count - 1))];
+    }
+
+    public void clear() {
+        count = 0;
+        next = 0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.blockoutlines.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// One background scan as seen by Java Flight Recorder. The event spans the worker walking
+// the captured sections, the client thread part is in captureTime.
+@Name("com.blockoutlines.Scan")
+@Label("Block Outlines Scan")
+@Category("Block Outlines")
+@Description("A scan of captured chunk sections for outline targets")
+@StackTrace(false)
+public class ScanEvent extends Event {
+    @Label("Kind")
+    @Description("FULL replaces the whole tracked set, CHUNK a single chunk column, WINDOW the sections a window move changed")
+    public String kind;
+
+    @Label("Radius")
+    public int radius;
+
+    @Label("Targets")
+    public String targets;
+
+    @Label("Blocks Visited")
+    public long blocksVisited;
+
+    @Label("Sections Visited")
+    public int sectionsVisited;
+
+    @Label("Sections Skipped")
+    @Description("Unloaded, empty or without a target in their palette")
+    public int sectionsSkipped;
+
+    @Label("Matches")
+    public int matches;
+
+    @Label("Capture Time")
+    @Description("Copying the sections on the client thread before the scan")
+    @Timespan(Timespan.NANOSECONDS)
+    public long captureTime;
+
+    @Label("Capture Ticks")
+    @Description("Ticks the capture was spread over to stay within the per-tick budget")
+    public int captureTicks;
+}
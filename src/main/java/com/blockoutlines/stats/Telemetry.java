@@ -0,0 +1,209 @@
+package com.blockoutlines.stats;
+
+import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.scan.ScanJob;
+import com.blockoutlines.scan.ScanStats;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Backs the JMX bean. Scan fields are only written by the scan worker and frame fields only
+// by the client thread, JMX threads read them. The last-value fields are plain volatiles; the
+// counters are atomics because reset() zeroes them from a JMX thread, and a volatile ++ racing
+// that reset would bring the old count back. A write is a handful of stores and a few
+// uncontended atomic increments, nothing is allocated.
+public final class Telemetry implements TelemetryMXBean {
+    public static final Telemetry INSTANCE = new Telemetry();
+
+    private static final int BUCKETS = 24;
+
+    private final AtomicLongArray scanHistogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray frameHistogram = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong fullScans = new AtomicLong();
+    private final AtomicLong chunkScans = new AtomicLong();
+    private final AtomicLong windowScans = new AtomicLong();
+    private volatile long lastScanNanos;
+    private volatile long lastCaptureNanos;
+    private final AtomicLong blocksVisited = new AtomicLong();
+    private final AtomicLong sectionsSkipped = new AtomicLong();
+    private volatile int trackedBlocks;
+    private volatile long trackedMemoryBytes;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong forcedOutlinePasses = new AtomicLong();
+    private volatile long lastFrameNanos;
+    private volatile int lastDrawnBlocks;
+    private volatile int lastCulledBlocks;
+    private volatile int lastSkippedBlocks;
+    private volatile int lastVertices;
+
+    private Telemetry() {}
+
+    // Failing to register only costs the JMX view, so it is logged and otherwise ignored
+    public static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                INSTANCE, new ObjectName("com.blockoutlines:type=Telemetry")
+            );
+        } catch (JMException e) {
+            BlockOutlinesClient.LOGGER.warn("Could not register the Block Outlines MBean", e);
+        }
+    }
+
+    // Scan worker, once per finished scan
+    public void recordScan(ScanJob.Kind kind, ScanStats stats) {
+        switch (kind) {
+            case FULL -> fullScans.incrementAndGet();
+            case CHUNK -> chunkScans.incrementAndGet();
+            case WINDOW -> windowScans.incrementAndGet();
+        }
+        lastScanNanos = stats.durationNanos;
+        lastCaptureNanos = stats.captureNanos;
+        blocksVisited.addAndGet(stats.blocksVisited);
+        sectionsSkipped.addAndGet(stats.getSectionsSkipped());
+        scanHistogram.incrementAndGet(bucket(stats.durationNanos));
+    }
+
+    // Client thread, once per applied batch of scan results, whatever the job kind
+    public void recordTracked(int blocks, long memoryBytes) {
+        trackedBlocks = blocks;
+        trackedMemoryBytes = memoryBytes;
+    }
+
+    // Client thread, once per frame
+    public void recordFrame(long nanos, int drawnBlocks, int culledBlocks, int skippedBlocks, int vertices, boolean forced) {
+        frames.incrementAndGet();
+        if (forced) {
+            forcedOutlinePasses.incrementAndGet();
+        }
+        lastFrameNanos = nanos;
+        lastDrawnBlocks = drawnBlocks;
+        lastCulledBlocks = culledBlocks;
+        lastSkippedBlocks = skippedBlocks;
+        lastVertices = vertices;
+        frameHistogram.incrementAndGet(bucket(nanos));
+    }
+
+    private static int bucket(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private static long[] toArray(AtomicLongArray histogram) {
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public long getFullScans() {
+        return fullScans.get();
+    }
+
+    @Override
+    public long getChunkScans() {
+        return chunkScans.get();
+    }
+
+    @Override
+    public long getWindowScans() {
+        return windowScans.get();
+    }
+
+    @Override
+    public double getLastScanMillis() {
+        return lastScanNanos / 1_000_000.0;
+    }
+
+    @Override
+    public double getLastCaptureMillis() {
+        return lastCaptureNanos / 1_000_000.0;
+    }
+
+    @Override
+    public long getBlocksVisited() {
+        return blocksVisited.get();
+    }
+
+    @Override
+    public long getSectionsSkipped() {
+        return sectionsSkipped.get();
+    }
+
+    @Override
+    public long[] getScanHistogram() {
+        return toArray(scanHistogram);
+    }
+
+    @Override
+    public int getTrackedBlocks() {
+        return trackedBlocks;
+    }
+
+    @Override
+    public long getTrackedMemoryBytes() {
+        return trackedMemoryBytes;
+    }
+
+    @Override
+    public long getFrames() {
+        return frames.get();
+    }
+
+    @Override
+    public long getForcedOutlinePasses() {
+        return forcedOutlinePasses.get();
+    }
+
+    @Override
+    public double getLastFrameMillis() {
+        return lastFrameNanos / 1_000_000.0;
+    }
+
+    @Override
+    public int getLastDrawnBlocks() {
+        return lastDrawnBlocks;
+    }
+
+    @Override
+    public int getLastCulledBlocks() {
+        return lastCulledBlocks;
+    }
+
+    @Override
+    public int getLastSkippedBlocks() {
+        return lastSkippedBlocks;
+    }
+
+    @Override
+    public int getLastVertices() {
+        return lastVertices;
+    }
+
+    @Override
+    public long[] getFrameHistogram() {
+        return toArray(frameHistogram);
+    }
+
+    // From a JMX client, so the counters can be zeroed at the start of a measurement
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            scanHistogram.set(i, 0);
+            frameHistogram.set(i, 0);
+        }
+        fullScans.set(0);
+        chunkScans.set(0);
+        windowScans.set(0);
+        blocksVisited.set(0);
+        sectionsSkipped.set(0);
+        frames.set(0);
+        forcedOutlinePasses.set(0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.blockoutlines.stats;
+
+// Live scanner and renderer counters over JMX, registered as com.blockoutlines:type=Telemetry.
+// Histograms count durations in power of two microsecond buckets: bucket i holds durations
+// from 2^i up to 2^(i+1) microseconds, bucket 0 everything below 2 microseconds.
+public interface TelemetryMXBean {
+    long getFullScans();
+
+    long getChunkScans();
+
+    long getWindowScans();
+
+    double getLastScanMillis();
+
+    double getLastCaptureMillis();
+
+    long getBlocksVisited();
+
+    long getSectionsSkipped();
+
+    long[] getScanHistogram();
+
+    int getTrackedBlocks();
+
+    long getTrackedMemoryBytes();
+
+    long getFrames();
+
+    long getForcedOutlinePasses();
+
+    double getLastFrameMillis();
+
+    int getLastDrawnBlocks();
+
+    int getLastCulledBlocks();
+
+    int getLastSkippedBlocks();
+
+    int getLastVertices();
+
+    long[] getFrameHistogram();
+
+    void reset();
+}
@@ -0,0 +1,215 @@
+package com.blockoutlines.target;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.state.property.Property;
+import net.minecraft.util.Identifier;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Describes which block states a target covers. Filters are only evaluated while a
+// TargetMatcher is compiled, never per scanned block, so they can be as slow as they like.
+//
+// Text form (see parse):
+//   minecraft:diamond_ore            a single block
+//   ~minecraft:diamond_ore           the block with its stone/deepslate/nether variants
+//   #minecraft:logs                  every block in a block tag
+//   minecraft:wheat[age=7]           any of the above restricted by state properties
+public interface BlockFilter {
+    boolean test(BlockState state);
+
+    // Block shown for this filter in the GUI
+    Block getDisplayBlock();
+
+    String asString();
+
+    // Whether what the filter matches depends on the tags the server sends
+    default boolean usesTags() {
+        return false;
+    }
+
+    static BlockFilter of(Block block) {
+        return new Single(block);
+    }
+
+    // Variant families share a path apart from a "deepslate_" or "nether_" prefix
+    static BlockFilter family(Block block) {
+        Identifier id = Registries.BLOCK.getId(block);
+        String base = id.getPath();
+        for (String prefix : Family.PREFIXES) {
+            if (!prefix.isEmpty() && base.startsWith(prefix)) {
+                base = base.substring(prefix.length());
+                break;
+            }
+        }
+
+        Set<Block> members = new HashSet<>();
+        for (String prefix : Family.PREFIXES) {
+            Identifier memberId = Identifier.of(id.getNamespace(), prefix + base);
+            if (Registries.BLOCK.containsId(memberId)) {
+                members.add(Registries.BLOCK.get(memberId));
+            }
+        }
+        members.add(block);
+        return new Family(block, Set.copyOf(members));
+    }
+
+    static BlockFilter tag(TagKey<Block> tag) {
+        return new Tag(tag);
+    }
+
+    static BlockFilter withProperties(BlockFilter base, Map<String, String> properties) {
+        return properties.isEmpty() ? base : new WithProperties(base, Map.copyOf(properties));
+    }
+
+    // Parses the text form above, throws IllegalArgumentException for unknown blocks or bad syntax
+    static BlockFilter parse(String spec) {
+        String text = spec.trim();
+        Map<String, String> properties = new LinkedHashMap<>();
+        int bracket = text.indexOf('[');
+        if (bracket >= 0) {
+            if (!text.endsWith("]")) {
+                throw new IllegalArgumentException("Unclosed property list in '" + spec + "'");
+            }
+            for (String pair : text.substring(bracket + 1, text.length() - 1).split(",")) {
+                if (pair.isBlank()) {
+                    continue;
+                }
+                int equals = pair.indexOf('=');
+                if (equals <= 0) {
+                    throw new IllegalArgumentException("Expected name=value but got '" + pair + "'");
+                }
+                properties.put(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+            }
+            text = text.substring(0, bracket);
+        }
+
+        boolean isTag = text.startsWith("#");
+        boolean isFamily = text.startsWith("~");
+        Identifier id = Identifier.tryParse(isTag || isFamily ? text.substring(1) : text);
+        if (id == null) {
+            throw new IllegalArgumentException("Invalid identifier in '" + spec + "'");
+        }
+
+        BlockFilter base;
+        if (isTag) {
+            base = tag(TagKey.of(RegistryKeys.BLOCK, id));
+        } else {
+            if (!Registries.BLOCK.containsId(id)) {
+                throw new IllegalArgumentException("Unknown block '" + id + "'");
+            }
+            Block block = Registries.BLOCK.get(id);
+            base = isFamily ? family(block) : of(block);
+        }
+        return withProperties(base, properties);
+    }
+
+    record Single(Block block) implements BlockFilter {
+        @Override
+        public boolean test(BlockState state) {
+            return state.isOf(block);
+        }
+
+        @Override
+        public Block getDisplayBlock() {
+            return block;
+        }
+
+        @Override
+        public String asString() {
+            return Registries.BLOCK.getId(block).toString();
+        }
+    }
+
+    record Family(Block block, Set<Block> members) implements BlockFilter {
+        private static final List<String> PREFIXES = List.of("", "deepslate_", "nether_");
+
+        @Override
+        public boolean test(BlockState state) {
+            return members.contains(state.getBlock());
+        }
+
+        @Override
+        public Block getDisplayBlock() {
+            return block;
+        }
+
+        @Override
+        public String asString() {
+            return "~" + Registries.BLOCK.getId(block);
+        }
+    }
+
+    record Tag(TagKey<Block> tag) implements BlockFilter {
+        @Override
+        public boolean test(BlockState state) {
+            return state.isIn(tag);
+        }
+
+        @Override
+        public Block getDisplayBlock() {
+            // Tags are only bound once the server has sent them
+            for (RegistryEntry<Block> entry : Registries.BLOCK.iterateEntries(tag)) {
+                return entry.value();
+            }
+            return Blocks.AIR;
+        }
+
+        @Override
+        public String asString() {
+            return "#" + tag.id();
+        }
+
+        @Override
+        public boolean usesTags() {
+            return true;
+        }
+    }
+
+    record WithProperties(BlockFilter base, Map<String, String> properties) implements BlockFilter {
+        @Override
+        public boolean test(BlockState state) {
+            if (!base.test(state)) {
+                return false;
+            }
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                Property<?> property = state.getBlock().getStateManager().getProperty(entry.getKey());
+                if (property == null || !hasValue(state, property, entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static <T extends Comparable<T>> boolean hasValue(BlockState state, Property<T> property, String value) {
+            return property.parse(value).map(parsed -> parsed.equals(state.get(property))).orElse(false);
+        }
+
+        @Override
+        public Block getDisplayBlock() {
+            return base.getDisplayBlock();
+        }
+
+        @Override
+        public boolean usesTags() {
+            return base.usesTags();
+        }
+
+        @Override
+        public String asString() {
+            return base.asString() + properties.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining(",", "[", "]"));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.blockoutlines.target;
+
+import net.minecraft.block.Block;
+
+// One thing to look for and the outline color (RGB) its matches are drawn with
+public record OutlineTarget(BlockFilter filter, int color) {
+    public OutlineTarget(Block block, int color) {
+        this(BlockFilter.of(block), color);
+    }
+
+    // Block that represents this target in the GUI
+    public Block block() {
+        return filter.getDisplayBlock();
+    }
+
+    public OutlineTarget withColor(int color) {
+        return new OutlineTarget(filter, color & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,74 @@
+package com.blockoutlines.target;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Targets compiled against the raw block state ids (Block.STATE_IDS). Every filter is
+// evaluated once per state when the matcher is built; afterwards "is this a target" is a
+// single bit test and "which target" a single array read. Immutable once built, which
+// makes it safe to share between the scan worker, the block change events and the renderer.
+public final class TargetMatcher {
+    public static final int NO_TARGET = -1;
+    public static final int MAX_TARGETS = 64;
+
+    private final long[] matchBits;
+    private final byte[] targetByStateId;
+    private final int targetCount;
+    private final Predicate<BlockState> anyTarget = this::matches;
+
+    public TargetMatcher(List<OutlineTarget> targets) {
+        if (targets.size() > MAX_TARGETS) {
+            throw new IllegalArgumentException("At most " + MAX_TARGETS + " targets are supported");
+        }
+        this.targetCount = targets.size();
+
+        int stateCount = Block.STATE_IDS.size();
+        this.matchBits = new long[(stateCount + 63) >>> 6];
+        this.targetByStateId = new byte[stateCount];
+        Arrays.fill(targetByStateId, (byte) NO_TARGET);
+
+        for (int id = 0; id < stateCount; id++) {
+            BlockState state = Block.STATE_IDS.get(id);
+            if (state == null) {
+                continue;
+            }
+            // Earlier targets win where filters overlap
+            for (int target = 0; target < targets.size(); target++) {
+                if (targets.get(target).filter().test(state)) {
+                    targetByStateId[id] = (byte) target;
+                    matchBits[id >>> 6] |= 1L << id;
+                    break;
+                }
+            }
+        }
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public boolean matchesRawId(int rawId) {
+        return rawId >= 0 && rawId < targetByStateId.length && (matchBits[rawId >>> 6] & (1L << rawId)) != 0;
+    }
+
+    public int targetOfRawId(int rawId) {
+        return rawId >= 0 && rawId < targetByStateId.length ? targetByStateId[rawId] : NO_TARGET;
+    }
+
+    public boolean matches(BlockState state) {
+        return matchesRawId(Block.STATE_IDS.getRawId(state));
+    }
+
+    public int targetOf(BlockState state) {
+        return targetOfRawId(Block.STATE_IDS.getRawId(state));
+    }
+
+    // Shared predicate instance for palette checks, avoids a method reference per section
+    public Predicate<BlockState> asPredicate() {
+        return anyTarget;
+    }
+}
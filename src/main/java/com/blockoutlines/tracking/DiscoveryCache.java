@@ -0,0 +1,350 @@
+package com.blockoutlines.tracking;
+
+import com.blockoutlines.BlockOutlinesClient;
+import com.blockoutlines.scan.ScanVolume;
+import com.blockoutlines.target.BlockFilter;
+import com.blockoutlines.target.OutlineTarget;
+import com.blockoutlines.target.TargetMatcher;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.server.integrated.IntegratedServer;
+import net.minecraft.util.Util;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Target positions found in earlier sessions, kept per server, dimension and target so that
+// outlines show up as soon as a chunk loads instead of once the first scan lands. Cached
+// positions are never drawn as they are: each one is checked against the live block state
+// when its chunk loads, and scans take over from there as usual.
+//
+// Client thread only. Files are read and written on the IO worker, writes from copies, and
+// a flush writes every target file in one batch.
+//
+// File format per target, big endian:
+//   int magic "BOSC", short version
+//   int section count, per section:
+//     long packed section key, short position count, then either that many shorts of local
+//     indices (y << 8 | z << 4 | x) or, for a crowded section, the 64 longs of its mask
+public class DiscoveryCache {
+    private static final int MAGIC = 0x424F5343;
+    private static final short VERSION = 1;
+    // From this many positions on the mask is no larger than the list of indices
+    private static final int MASK_POSITIONS = SectionBitStore.WORDS_PER_SECTION * 4;
+
+    // Every read and write of every cache goes through this chain, so a load never sees a
+    // file that an earlier flush is still writing
+    private static CompletableFuture<?> io = CompletableFuture.completedFuture(null);
+
+    private final Path directory;
+    private final ClientWorld world;
+    private final List<BlockFilter> filters;
+    private SectionBitStore[] stores; // Null until loaded
+    private boolean dirty;
+
+    private DiscoveryCache(Path directory, ClientWorld world, List<BlockFilter> filters) {
+        this.directory = directory;
+        this.world = world;
+        this.filters = filters;
+    }
+
+    // The cache for the world the client is in, below root. Null when the server cannot be
+    // told apart from others, such as while still connecting.
+    public static DiscoveryCache open(Path root, MinecraftClient client, ClientWorld world, List<OutlineTarget> targets) {
+        String server = serverName(client);
+        if (server == null) {
+            return null;
+        }
+        Path directory = root
+            .resolve(fileName(server))
+            .resolve(fileName(world.getRegistryKey().getValue().toString()));
+        return new DiscoveryCache(directory, world, targets.stream().map(OutlineTarget::filter).toList());
+    }
+
+    private static String serverName(MinecraftClient client) {
+        ServerInfo server = client.getCurrentServerEntry();
+        if (server != null) {
+            return "server-" + server.address;
+        }
+        IntegratedServer integrated = client.getServer();
+        if (integrated != null) {
+            return "local-" + integrated.getSavePath(WorldSavePath.ROOT).normalize().getFileName();
+        }
+        return null;
+    }
+
+    private static String fileName(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_");
+    }
+
+    public boolean isFor(ClientWorld world, List<OutlineTarget> targets) {
+        if (this.world != world || filters.size() != targets.size()) {
+            return false;
+        }
+        for (int i = 0; i < filters.size(); i++) {
+            if (!filters.get(i).equals(targets.get(i).filter())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isLoaded() {
+        return stores != null;
+    }
+
+    public ClientWorld getWorld() {
+        return world;
+    }
+
+    // Reads every target file on the IO worker. The returned future completes on the client
+    // thread once the cache is usable; missing or unreadable files start out empty.
+    public CompletableFuture<DiscoveryCache> load(Executor clientExecutor) {
+        CompletableFuture<SectionBitStore[]> read = io.thenApplyAsync(ignored -> {
+            SectionBitStore[] loaded = new SectionBitStore[filters.size()];
+            for (int i = 0; i < loaded.length; i++) {
+                loaded[i] = read(file(i));
+            }
+            return loaded;
+        }, Util.getIoWorkerExecutor());
+        io = read.handle((result, error) -> null);
+        return read.thenApplyAsync(loaded -> {
+            stores = loaded;
+            return this;
+        }, clientExecutor);
+    }
+
+    // Adds the cached positions of a loaded chunk that lie in volume and still hold their
+    // target to tracked. Returns whether anything was added.
+    public boolean verifyColumn(WorldChunk chunk, ScanVolume volume, TargetMatcher matcher, SectionBitStore[] tracked) {
+        if (stores == null || tracked.length != stores.length || volume == null) {
+            return false;
+        }
+
+        int chunkX = chunk.getPos().x;
+        int chunkZ = chunk.getPos().z;
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        boolean added = false;
+        for (int target = 0; target < stores.length; target++) {
+            int index = target;
+            SectionBitStore store = tracked[target];
+            int before = store.size();
+            for (int sectionY = world.getBottomSectionCoord(); sectionY < world.getTopSectionCoord(); sectionY++) {
+                long key = ChunkSectionPos.asLong(chunkX, sectionY, chunkZ);
+                long[] bits = stores[target].getSection(key);
+                if (bits == null || !volume.intersectsSection(chunkX, sectionY, chunkZ)) {
+                    continue;
+                }
+                SectionBitStore.forEachInSection(key, bits, (x, y, z) -> {
+                    if (volume.contains(x, y, z) && matcher.targetOf(chunk.getBlockState(pos.set(x, y, z))) == index) {
+                        store.add(x, y, z);
+                    }
+                });
+            }
+            added |= store.size() != before;
+        }
+        return added;
+    }
+
+    // Takes over what the scans found in every loaded column of volume: there the tracked
+    // positions replace the cached ones, everything outside the volume stays as cached
+    public void merge(SectionBitStore[] tracked, ScanVolume volume) {
+        if (stores == null || tracked.length != stores.length || volume == null || volume.isEmpty()) {
+            return;
+        }
+        int minChunkX = ChunkSectionPos.getSectionCoord(volume.minX());
+        int maxChunkX = ChunkSectionPos.getSectionCoord(volume.maxX());
+        int minChunkZ = ChunkSectionPos.getSectionCoord(volume.minZ());
+        int maxChunkZ = ChunkSectionPos.getSectionCoord(volume.maxZ());
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                if (world.getChunkManager().isChunkLoaded(chunkX, chunkZ)) {
+                    mergeColumn(chunkX, chunkZ, tracked, volume);
+                }
+            }
+        }
+    }
+
+    // The same for one column, called before it unloads and its tracked positions are dropped
+    public void mergeColumn(int chunkX, int chunkZ, SectionBitStore[] tracked, ScanVolume volume) {
+        if (stores == null || tracked.length != stores.length || volume == null || volume.isEmpty()) {
+            return;
+        }
+        int minSectionY = ChunkSectionPos.getSectionCoord(volume.minY());
+        int maxSectionY = ChunkSectionPos.getSectionCoord(volume.maxY());
+        for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+            if (!volume.intersectsSection(chunkX, sectionY, chunkZ)) {
+                continue;
+            }
+            long key = ChunkSectionPos.asLong(chunkX, sectionY, chunkZ);
+            for (int target = 0; target < stores.length; target++) {
+                mergeSection(stores[target], tracked[target], key, volume);
+            }
+        }
+    }
+
+    private void mergeSection(SectionBitStore cached, SectionBitStore tracked, long key, ScanVolume volume) {
+        long[] cachedBits = cached.getSection(key);
+        long[] trackedBits = tracked.getSection(key);
+        if (cachedBits == null && trackedBits == null) {
+            return;
+        }
+
+        long[] merged = trackedBits == null ? new long[SectionBitStore.WORDS_PER_SECTION] : trackedBits.clone();
+        if (cachedBits != null) {
+            SectionBitStore.forEachInSection(key, cachedBits, (x, y, z) -> {
+                if (!volume.contains(x, y, z)) {
+                    int index = SectionBitStore.localIndex(x, y, z);
+                    merged[index >>> 6] |= 1L << index;
+                }
+            });
+            if (Arrays.equals(merged, cachedBits)) {
+                return;
+            }
+        }
+        if (isEmpty(merged)) {
+            // Nothing left here, a section that was not cached stays out of the file
+            if (cachedBits != null) {
+                cached.removeSection(key);
+                dirty = true;
+            }
+            return;
+        }
+        cached.putSection(key, merged);
+        dirty = true;
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Writes every target file on the IO worker if anything changed since the last flush
+    public void flush() {
+        if (stores == null || !dirty) {
+            return;
+        }
+        dirty = false;
+
+        SectionBitStore[] copies = new SectionBitStore[stores.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = stores[i].copy();
+        }
+        io = io.thenRunAsync(() -> {
+            for (int i = 0; i < copies.length; i++) {
+                write(file(i), copies[i]);
+            }
+        }, Util.getIoWorkerExecutor());
+    }
+
+    private Path file(int target) {
+        String spec = filters.get(target).asString();
+        // Specs that differ only in punctuation, such as a tag and a block of the same id, get their own file
+        return directory.resolve(fileName(spec) + "-" + Integer.toHexString(spec.hashCode()) + ".bosc");
+    }
+
+    private static SectionBitStore read(Path file) {
+        SectionBitStore store = new SectionBitStore();
+        if (!Files.isRegularFile(file)) {
+            return store;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                BlockOutlinesClient.LOGGER.warn("Ignoring outline cache {} written by another version", file);
+                return store;
+            }
+            int sections = in.readInt();
+            for (int i = 0; i < sections; i++) {
+                long key = in.readLong();
+                int positions = in.readUnsignedShort();
+                long[] bits = new long[SectionBitStore.WORDS_PER_SECTION];
+                if (positions >= MASK_POSITIONS) {
+                    for (int word = 0; word < bits.length; word++) {
+                        bits[word] = in.readLong();
+                    }
+                } else {
+                    for (int j = 0; j < positions; j++) {
+                        int index = in.readUnsignedShort() & 4095;
+                        bits[index >>> 6] |= 1L << index;
+                    }
+                }
+                store.putSection(key, bits);
+            }
+        } catch (IOException e) {
+            BlockOutlinesClient.LOGGER.warn("Failed to read outline cache {}", file, e);
+            store.clear();
+        }
+        return store;
+    }
+
+    // Written next to the file and moved over it, so a crash mid write keeps the old file
+    private static void write(Path file, SectionBitStore store) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(store.getSectionCount());
+                store.forEachSection((key, bits) -> {
+                    try {
+                        writeSection(out, key, bits);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            BlockOutlinesClient.LOGGER.warn("Failed to write outline cache {}", file, e);
+        }
+    }
+
+    private static void writeSection(DataOutputStream out, long key, long[] bits) throws IOException {
+        int positions = 0;
+        for (long word : bits) {
+            positions += Long.bitCount(word);
+        }
+        out.writeLong(key);
+        out.writeShort(positions);
+        if (positions >= MASK_POSITIONS) {
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+            return;
+        }
+        for (int word = 0; word < bits.length; word++) {
+            long value = bits[word];
+            while (value != 0) {
+                out.writeShort((word << 6) | Long.numberOfTrailingZeros(value));
+                value &= value - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.blockoutlines.tracking;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.util.function.LongPredicate;
+
+// Set of block positions stored as one 4096-bit occupancy mask per chunk section, keyed by
+// the packed ChunkSectionPos long. Bit order follows Minecraft's own section indexing
+// (y << 8 | z << 4 | x) so masks can be filled straight from a section's storage.
+// Not thread-safe: a store is either owned by the scan worker while it is filled or by the
+// client thread once it has been handed over. Other threads read it through snapshot().
+public class SectionBitStore {
+    public static final int WORDS_PER_SECTION = 64; // 4096 bits
+
+    private final Long2ObjectOpenHashMap<long[]> sections = new Long2ObjectOpenHashMap<>();
+    // Masks that no published snapshot can see and may be written in place
+    private final LongOpenHashSet ownedSections = new LongOpenHashSet();
+    private int size;
+
+    @FunctionalInterface
+    public interface PositionConsumer {
+        void accept(int x, int y, int z);
+    }
+
+    @FunctionalInterface
+    public interface SectionConsumer {
+        void accept(long sectionKey, long[] bits);
+    }
+
+    public static int localIndex(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    public boolean add(int x, int y, int z) {
+        long key = ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z));
+        long[] bits = sections.get(key);
+        int index = localIndex(x, y, z);
+        long mask = 1L << index;
+        if (bits != null && (bits[index >>> 6] & mask) != 0) {
+            return false;
+        }
+
+        bits = bits == null ? newSection(key) : writableSection(key, bits);
+        bits[index >>> 6] |= mask;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int x, int y, int z) {
+        long key = ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z));
+        long[] bits = sections.get(key);
+        if (bits == null) {
+            return false;
+        }
+
+        int index = localIndex(x, y, z);
+        long mask = 1L << index;
+        if ((bits[index >>> 6] & mask) == 0) {
+            return false;
+        }
+        bits = writableSection(key, bits);
+        bits[index >>> 6] &= ~mask;
+        size--;
+        if (isEmpty(bits)) {
+            sections.remove(key);
+            ownedSections.remove(key);
+        }
+        return true;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        long[] bits = sections.get(ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z)));
+        if (bits == null) {
+            return false;
+        }
+        int index = localIndex(x, y, z);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    // Replaces a whole section mask, the store takes ownership of the array
+    public void putSection(long sectionKey, long[] bits) {
+        removeSection(sectionKey);
+        int count = bitCount(bits);
+        if (count > 0) {
+            sections.put(sectionKey, bits);
+            ownedSections.add(sectionKey);
+            size += count;
+        }
+    }
+
+    public void removeSection(long sectionKey) {
+        ownedSections.remove(sectionKey);
+        long[] old = sections.remove(sectionKey);
+        if (old != null) {
+            size -= bitCount(old);
+        }
+    }
+
+    public long[] getSection(long sectionKey) {
+        return sections.get(sectionKey);
+    }
+
+    // Drops every section of the chunk column at the given chunk coordinates, looked up key by
+    // key between the world's bottom section and its top section (exclusive), so the cost does
+    // not grow with the size of the store
+    public void removeColumn(int chunkX, int chunkZ, int bottomSectionY, int topSectionY) {
+        for (int sectionY = bottomSectionY; sectionY < topSectionY; sectionY++) {
+            removeSection(ChunkSectionPos.asLong(chunkX, sectionY, chunkZ));
+        }
+    }
+
+    // Drops every section whose packed key matches
+    public void removeSectionsIf(LongPredicate predicate) {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            long key = entry.getLongKey();
+            if (predicate.test(key)) {
+                size -= bitCount(entry.getValue());
+                ownedSections.remove(key);
+                iterator.remove();
+            }
+        }
+    }
+
+    // Copies every section of other into this store, replacing sections already present
+    public void putAll(SectionBitStore other) {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = other.sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            putSection(entry.getLongKey(), entry.getValue().clone());
+        }
+    }
+
+    public void clear() {
+        sections.clear();
+        ownedSections.clear();
+        size = 0;
+    }
+
+    // Publishes the current contents without copying any mask. Every mask becomes shared
+    // with the layer, so the next write to a section copies that section first.
+    public TrackedLayer snapshot(int color) {
+        ownedSections.clear();
+        return new TrackedLayer(color, new Long2ObjectOpenHashMap<>(sections), size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    // Iterates every stored position in world coordinates without allocating per position
+    public void forEach(PositionConsumer consumer) {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            forEachInSection(entry.getLongKey(), entry.getValue(), consumer);
+        }
+    }
+
+    // Iterates every section mask, the masks must not be modified
+    public void forEachSection(SectionConsumer consumer) {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            consumer.accept(entry.getLongKey(), entry.getValue());
+        }
+    }
+
+    public static void forEachInSection(long sectionKey, long[] bits, PositionConsumer consumer) {
+        int baseX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey));
+        int baseY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey));
+        int baseZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey));
+        for (int word = 0; word < WORDS_PER_SECTION; word++) {
+            long value = bits[word];
+            while (value != 0) {
+                int index = (word << 6) | Long.numberOfTrailingZeros(value);
+                consumer.accept(baseX + (index & 15), baseY + (index >>> 8), baseZ + ((index >>> 4) & 15));
+                value &= value - 1;
+            }
+        }
+    }
+
+    // Number of positions present in exactly one of the two stores
+    public int countDifferences(SectionBitStore other) {
+        int differences = 0;
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            long[] mine = entry.getValue();
+            long[] theirs = other.sections.get(entry.getLongKey());
+            for (int word = 0; word < WORDS_PER_SECTION; word++) {
+                differences += Long.bitCount(theirs == null ? mine[word] : mine[word] ^ theirs[word]);
+            }
+        }
+        iterator = other.sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            if (!sections.containsKey(entry.getLongKey())) {
+                differences += bitCount(entry.getValue());
+            }
+        }
+        return differences;
+    }
+
+    public SectionBitStore copy() {
+        SectionBitStore copy = new SectionBitStore();
+        copy.putAll(this);
+        return copy;
+    }
+
+    // Rough heap footprint: mask arrays plus the open-addressing key/value tables
+    public long estimateMemoryBytes() {
+        long maskBytes = 16L + WORDS_PER_SECTION * 8L;
+        long tableSlots = Math.max(16, (long) Math.ceil(sections.size() / 0.75));
+        return sections.size() * maskBytes + tableSlots * (8L + 4L) + 64L;
+    }
+
+    private long[] newSection(long key) {
+        long[] bits = new long[WORDS_PER_SECTION];
+        sections.put(key, bits);
+        ownedSections.add(key);
+        return bits;
+    }
+
+    private long[] writableSection(long key, long[] bits) {
+        if (ownedSections.contains(key)) {
+            return bits;
+        }
+        long[] copy = bits.clone();
+        sections.put(key, copy);
+        ownedSections.add(key);
+        return copy;
+    }
+
+    private static int bitCount(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
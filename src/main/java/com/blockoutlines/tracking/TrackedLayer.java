@@ -0,0 +1,234 @@
+package com.blockoutlines.tracking;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+
+// Immutable view of the tracked positions of one target at one point in time. The section
+// masks are shared with the SectionBitStore that produced it, which copies a mask before it
+// next writes to it, so publishing a layer never copies position data.
+public final class TrackedLayer {
+    private final int color;
+    private final Long2ObjectOpenHashMap<long[]> sections;
+    private final int size;
+
+    @FunctionalInterface
+    public interface SectionConsumer {
+        void accept(long sectionKey, long[] bits);
+    }
+
+    // A box test on its bounds, such as a frustum check, so queries need no Box per section
+    @FunctionalInterface
+    public interface BoundsPredicate {
+        boolean test(double minX, double minY, double minZ, double maxX, double maxY, double maxZ);
+    }
+
+    TrackedLayer(int color, Long2ObjectOpenHashMap<long[]> sections, int size) {
+        this.color = color;
+        this.sections = sections;
+        this.size = size;
+    }
+
+    // Outline color (RGB) of the target this layer belongs to
+    public int getColor() {
+        return color;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getSectionCount() {
+        return sections.size();
+    }
+
+    public boolean contains(int x, int y, int z) {
+        long[] bits = sections.get(ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(y), ChunkSectionPos.getSectionCoord(z)));
+        if (bits == null) {
+            return false;
+        }
+        int index = SectionBitStore.localIndex(x, y, z);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    // The mask of one section, or null when nothing is tracked there. Must not be modified.
+    public long[] getSection(long sectionKey) {
+        return sections.get(sectionKey);
+    }
+
+    public void forEach(SectionBitStore.PositionConsumer consumer) {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            SectionBitStore.forEachInSection(entry.getLongKey(), entry.getValue(), consumer);
+        }
+    }
+
+    public void forEachSection(SectionConsumer consumer) {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            consumer.accept(entry.getLongKey(), entry.getValue());
+        }
+    }
+
+    // Visits the tracked positions inside the inclusive box. Only sections overlapping the box
+    // are touched, so the cost follows the size of the box and not the size of the layer.
+    public void forEachInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, SectionBitStore.PositionConsumer consumer) {
+        forEachSectionInRange(
+            ChunkSectionPos.getSectionCoord(minX), ChunkSectionPos.getSectionCoord(minY), ChunkSectionPos.getSectionCoord(minZ),
+            ChunkSectionPos.getSectionCoord(maxX), ChunkSectionPos.getSectionCoord(maxY), ChunkSectionPos.getSectionCoord(maxZ),
+            (sectionKey, bits) -> {
+                int baseX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey));
+                int baseY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey));
+                int baseZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey));
+                if (minX <= baseX && minY <= baseY && minZ <= baseZ
+                    && maxX >= baseX + 15 && maxY >= baseY + 15 && maxZ >= baseZ + 15) {
+                    SectionBitStore.forEachInSection(sectionKey, bits, consumer);
+                    return;
+                }
+                SectionBitStore.forEachInSection(sectionKey, bits, (x, y, z) -> {
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+                        consumer.accept(x, y, z);
+                    }
+                });
+            }
+        );
+    }
+
+    // Number of tracked positions whose block center lies within radius of the point. Sections
+    // entirely inside the sphere are counted with a popcount instead of position by position.
+    public int countWithin(double x, double y, double z, double radius) {
+        double radiusSq = radius * radius;
+        int[] count = new int[1];
+        forEachSectionInRange(
+            ChunkSectionPos.getSectionCoord(MathHelper.floor(x - radius)),
+            ChunkSectionPos.getSectionCoord(MathHelper.floor(y - radius)),
+            ChunkSectionPos.getSectionCoord(MathHelper.floor(z - radius)),
+            ChunkSectionPos.getSectionCoord(MathHelper.floor(x + radius)),
+            ChunkSectionPos.getSectionCoord(MathHelper.floor(y + radius)),
+            ChunkSectionPos.getSectionCoord(MathHelper.floor(z + radius)),
+            (sectionKey, bits) -> {
+                if (maxSquaredDistance(sectionKey, x, y, z) <= radiusSq) {
+                    for (long word : bits) {
+                        count[0] += Long.bitCount(word);
+                    }
+                } else if (minSquaredDistance(sectionKey, x, y, z) <= radiusSq) {
+                    SectionBitStore.forEachInSection(sectionKey, bits, (bx, by, bz) -> {
+                        double dx = bx + 0.5 - x;
+                        double dy = by + 0.5 - y;
+                        double dz = bz + 0.5 - z;
+                        if (dx * dx + dy * dy + dz * dz <= radiusSq) {
+                            count[0]++;
+                        }
+                    });
+                }
+            }
+        );
+        return count[0];
+    }
+
+    // Whether the box around any tracked position passes the visibility test, checked per
+    // section first and then against the bounds of the section's tracked positions
+    public boolean anyVisible(BoundsPredicate visible) {
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            long sectionKey = entry.getLongKey();
+            int baseX = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey));
+            int baseY = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey));
+            int baseZ = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey));
+            if (!visible.test(baseX, baseY, baseZ, baseX + 16, baseY + 16, baseZ + 16)) {
+                continue;
+            }
+
+            // Bounds of the set bits, local index is y << 8 | z << 4 | x
+            long[] bits = entry.getValue();
+            int minX = 16, minY = 16, minZ = 16, maxX = -1, maxY = -1, maxZ = -1;
+            for (int word = 0; word < bits.length; word++) {
+                for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                    int index = word << 6 | Long.numberOfTrailingZeros(remaining);
+                    int x = index & 15;
+                    int y = index >>> 8;
+                    int z = index >>> 4 & 15;
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    minZ = Math.min(minZ, z);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                    maxZ = Math.max(maxZ, z);
+                }
+            }
+            if (maxX >= 0 && visible.test(
+                baseX + minX, baseY + minY, baseZ + minZ,
+                baseX + maxX + 1, baseY + maxY + 1, baseZ + maxZ + 1
+            )) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Squared distance from the point to the nearest block center the section can hold
+    static double minSquaredDistance(long sectionKey, double x, double y, double z) {
+        double dx = axisDistance(ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey)), x);
+        double dy = axisDistance(ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey)), y);
+        double dz = axisDistance(ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey)), z);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Squared distance from the point to the farthest block center of the section
+    private static double maxSquaredDistance(long sectionKey, double x, double y, double z) {
+        double dx = axisFarthest(ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(sectionKey)), x);
+        double dy = axisFarthest(ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(sectionKey)), y);
+        double dz = axisFarthest(ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(sectionKey)), z);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double axisDistance(int base, double value) {
+        return Math.max(Math.max(base + 0.5 - value, value - (base + 15.5)), 0.0);
+    }
+
+    private static double axisFarthest(int base, double value) {
+        return Math.max(Math.abs(value - (base + 0.5)), Math.abs(value - (base + 15.5)));
+    }
+
+    // Sections within the inclusive section range. Looked up one by one when the range spans
+    // fewer sections than the layer holds, otherwise the layer's own sections are filtered.
+    private void forEachSectionInRange(int minSX, int minSY, int minSZ, int maxSX, int maxSY, int maxSZ, SectionConsumer consumer) {
+        long rangeSections = (long) (maxSX - minSX + 1) * (maxSY - minSY + 1) * (maxSZ - minSZ + 1);
+        if (rangeSections <= sections.size()) {
+            for (int sx = minSX; sx <= maxSX; sx++) {
+                for (int sy = minSY; sy <= maxSY; sy++) {
+                    for (int sz = minSZ; sz <= maxSZ; sz++) {
+                        long sectionKey = ChunkSectionPos.asLong(sx, sy, sz);
+                        long[] bits = sections.get(sectionKey);
+                        if (bits != null) {
+                            consumer.accept(sectionKey, bits);
+                        }
+                    }
+                }
+            }
+            return;
+        }
+
+        ObjectIterator<Long2ObjectMap.Entry<long[]>> iterator = sections.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<long[]> entry = iterator.next();
+            long sectionKey = entry.getLongKey();
+            int sx = ChunkSectionPos.unpackX(sectionKey);
+            int sy = ChunkSectionPos.unpackY(sectionKey);
+            int sz = ChunkSectionPos.unpackZ(sectionKey);
+            if (sx >= minSX && sx <= maxSX && sy >= minSY && sy <= maxSY && sz >= minSZ && sz <= maxSZ) {
+                consumer.accept(sectionKey, entry.getValue());
+            }
+        }
+    }
+}
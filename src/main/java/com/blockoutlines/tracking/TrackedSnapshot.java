@@ -0,0 +1,170 @@
+package com.blockoutlines.tracking;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Immutable view of everything tracked at one point in time, one layer per target in
+// target order. Published by the client thread and read by the renderer without copying.
+public final class TrackedSnapshot {
+    public static final TrackedSnapshot EMPTY = new TrackedSnapshot(0, new TrackedLayer[0]);
+
+    private final long generation;
+    private final TrackedLayer[] layers;
+    private final int size;
+
+    public TrackedSnapshot(long generation, TrackedLayer[] layers) {
+        this.generation = generation;
+        this.layers = layers;
+        int total = 0;
+        for (TrackedLayer layer : layers) {
+            total += layer.size();
+        }
+        this.size = total;
+    }
+
+    // Increases every time a snapshot with different contents is published
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Total number of tracked positions over all layers
+    public int size() {
+        return size;
+    }
+
+    public int getLayerCount() {
+        return layers.length;
+    }
+
+    public TrackedLayer getLayer(int index) {
+        return layers[index];
+    }
+
+    // Spatial queries over every layer. The section masks double as a sparse grid: queries
+    // pick sections by their coordinates and only open the masks that can contribute.
+
+    public void forEachInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, SectionBitStore.PositionConsumer consumer) {
+        for (TrackedLayer layer : layers) {
+            layer.forEachInBox(minX, minY, minZ, maxX, maxY, maxZ, consumer);
+        }
+    }
+
+    public int countWithin(double x, double y, double z, double radius) {
+        int count = 0;
+        for (TrackedLayer layer : layers) {
+            count += layer.countWithin(x, y, z, radius);
+        }
+        return count;
+    }
+
+    public boolean anyVisible(TrackedLayer.BoundsPredicate visible) {
+        for (TrackedLayer layer : layers) {
+            if (layer.anyVisible(visible)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The k tracked positions whose block centers are nearest to the point, nearest first.
+    // Sections are visited in rings of growing section distance around the point's section,
+    // the search stops at the first ring that cannot beat the k-th candidate found so far,
+    // so the work follows how far out the k results lie rather than how much is tracked.
+    public List<BlockPos> nearest(double x, double y, double z, int k) {
+        if (k <= 0 || isEmpty()) {
+            return List.of();
+        }
+
+        int centerX = ChunkSectionPos.getSectionCoord(MathHelper.floor(x));
+        int centerY = ChunkSectionPos.getSectionCoord(MathHelper.floor(y));
+        int centerZ = ChunkSectionPos.getSectionCoord(MathHelper.floor(z));
+        int remaining = 0;
+        for (TrackedLayer layer : layers) {
+            remaining += layer.getSectionCount();
+        }
+
+        // Max-heap on distance, the root is the current k-th candidate
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k, (a, b) -> Double.compare(b.distanceSq(), a.distanceSq()));
+        SectionBitStore.PositionConsumer offer = (bx, by, bz) -> {
+            double dx = bx + 0.5 - x;
+            double dy = by + 0.5 - y;
+            double dz = bz + 0.5 - z;
+            double distanceSq = dx * dx + dy * dy + dz * dz;
+            if (heap.size() < k) {
+                heap.add(new Candidate(BlockPos.asLong(bx, by, bz), distanceSq));
+            } else if (distanceSq < heap.peek().distanceSq()) {
+                heap.poll();
+                heap.add(new Candidate(BlockPos.asLong(bx, by, bz), distanceSq));
+            }
+        };
+
+        for (int ring = 0; remaining > 0; ring++) {
+            // No block center of a section ring sections away is nearer than this
+            double ringDistance = ring == 0 ? 0.0 : 16.0 * ring - 15.5;
+            if (heap.size() == k && ringDistance * ringDistance > heap.peek().distanceSq()) {
+                break;
+            }
+
+            long side = 2L * ring + 1;
+            long ringSections = ring == 0 ? 1 : side * side * side - (side - 2) * (side - 2) * (side - 2);
+            if (ringSections * layers.length >= remaining) {
+                // Fewer sections are left than the ring has places, go through those instead
+                int from = ring;
+                for (TrackedLayer layer : layers) {
+                    layer.forEachSection((sectionKey, bits) -> {
+                        int distance = Math.max(
+                            Math.abs(ChunkSectionPos.unpackX(sectionKey) - centerX),
+                            Math.max(
+                                Math.abs(ChunkSectionPos.unpackY(sectionKey) - centerY),
+                                Math.abs(ChunkSectionPos.unpackZ(sectionKey) - centerZ)
+                            )
+                        );
+                        if (distance >= from && (heap.size() < k
+                            || TrackedLayer.minSquaredDistance(sectionKey, x, y, z) < heap.peek().distanceSq())) {
+                            SectionBitStore.forEachInSection(sectionKey, bits, offer);
+                        }
+                    });
+                }
+                break;
+            }
+
+            // The shell of the cube of sections around the center section
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dy = -ring; dy <= ring; dy++) {
+                    boolean face = Math.abs(dx) == ring || Math.abs(dy) == ring;
+                    for (int dz = -ring; dz <= ring; dz += face ? 1 : 2 * ring) {
+                        long sectionKey = ChunkSectionPos.asLong(centerX + dx, centerY + dy, centerZ + dz);
+                        for (TrackedLayer layer : layers) {
+                            long[] bits = layer.getSection(sectionKey);
+                            if (bits == null) {
+                                continue;
+                            }
+                            remaining--;
+                            if (heap.size() < k
+                                || TrackedLayer.minSquaredDistance(sectionKey, x, y, z) < heap.peek().distanceSq()) {
+                                SectionBitStore.forEachInSection(sectionKey, bits, offer);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<BlockPos> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(BlockPos.fromLong(heap.poll().pos()));
+        }
+        return result.reversed();
+    }
+
+    private record Candidate(long pos, double distanceSq) {}
+}
@@ -0,0 +1,146 @@
+package com.blockoutlines.renderer;
+
+import net.minecraft.client.render.Frustum;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// The steady-state outline frame, what prepareFrame and the render call do every frame once
+// the meshes are built: the budget update, culling and the replay into the outline buffer.
+// Runs over synthetic meshes, so no world, block models or game bootstrap are needed.
+class OutlineFrameAllocationTest {
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int MEASURED_FRAMES = 2_000;
+    // The camera moves to the next section every this many frames, so the mesh order is redone
+    private static final int FRAMES_PER_CAMERA_MOVE = 10;
+    private static final int BLOCKS_PER_SECTION = 64;
+
+    @Test
+    void steadyStateFrameDoesNotAllocate() {
+        assumeTrue(AllocationProbe.isSupported(), "JVM does not count allocated bytes per thread");
+
+        OutlineMeshCache cache = new OutlineMeshCache();
+        for (int sectionX = -2; sectionX <= 2; sectionX++) {
+            for (int sectionY = 3; sectionY <= 5; sectionY++) {
+                for (int sectionZ = -4; sectionZ <= -1; sectionZ++) {
+                    cache.addMesh(syntheticMesh(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ), (sectionX + sectionY) & 1));
+                }
+            }
+        }
+
+        // Looking down -Z from just behind the meshes
+        Frustum frustum = new Frustum(
+            new Matrix4f(),
+            new Matrix4f().perspective((float) Math.toRadians(90), 16 / 9f, 0.05f, 512f)
+        );
+        Vec3d[] cameras = {new Vec3d(8, 72, 8), new Vec3d(8, 72, 24)};
+        RenderBudget budget = new RenderBudget();
+        budget.setTargetFps(60);
+        MatrixStack matrices = new MatrixStack();
+        CountingConsumer consumer = new CountingConsumer();
+
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            frame(cache, frustum, cameras[frame / FRAMES_PER_CAMERA_MOVE & 1], budget, matrices, consumer);
+        }
+
+        consumer.vertices = 0;
+        long before = AllocationProbe.allocatedBytes();
+        boolean anyVisible = false;
+        for (int frame = 0; frame < MEASURED_FRAMES; frame++) {
+            anyVisible |= frame(cache, frustum, cameras[frame / FRAMES_PER_CAMERA_MOVE & 1], budget, matrices, consumer);
+        }
+        long allocated = AllocationProbe.allocatedBytes() - before;
+
+        assertTrue(anyVisible && consumer.vertices > 0, "The frames did not draw anything");
+        assertEquals(0, allocated, "Bytes allocated over " + MEASURED_FRAMES + " steady-state frames");
+    }
+
+    private static boolean frame(
+        OutlineMeshCache cache,
+        Frustum frustum,
+        Vec3d camera,
+        RenderBudget budget,
+        MatrixStack matrices,
+        VertexConsumer consumer
+    ) {
+        frustum.setPosition(camera.x, camera.y, camera.z);
+        budget.onFrame(System.nanoTime(), cache.getDrawnVertices());
+        boolean anyVisible = cache.cull(frustum, camera, 0, budget.getVertexBudget());
+        if (anyVisible) {
+            cache.render(0, matrices, camera, consumer);
+            cache.render(1, matrices, camera, consumer);
+        }
+        return anyVisible;
+    }
+
+    // A diagonal vein of unit cubes, 24 vertices each as the model renderer emits them
+    private static SectionMesh syntheticMesh(long sectionKey, int layerIndex) {
+        long[] bits = new long[64];
+        float[] vertices = new float[BLOCKS_PER_SECTION * 24 * SectionMesh.FLOATS_PER_VERTEX];
+        int offset = 0;
+        for (int block = 0; block < BLOCKS_PER_SECTION; block++) {
+            int x = block & 15;
+            int y = block >>> 2 & 15;
+            int z = (block * 7) & 15;
+            int index = y << 8 | z << 4 | x;
+            bits[index >>> 6] |= 1L << index;
+            for (int face = 0; face < 6; face++) {
+                for (int corner = 0; corner < 4; corner++) {
+                    vertices[offset] = x + (corner & 1);
+                    vertices[offset + 1] = y + (corner >>> 1 & 1);
+                    vertices[offset + 2] = z + (face & 1);
+                    vertices[offset + 3] = corner * 0.25f;
+                    vertices[offset + 4] = face / 6f;
+                    vertices[offset + 5] = 0;
+                    vertices[offset + 6] = 0;
+                    vertices[offset + 7] = (face & 1) * 2 - 1;
+                    offset += SectionMesh.FLOATS_PER_VERTEX;
+                }
+            }
+        }
+        return new SectionMesh(sectionKey, layerIndex, bits, vertices, BLOCKS_PER_SECTION * 24);
+    }
+
+    // Stands in for the outline buffer, only counts what it is given
+    private static final class CountingConsumer implements VertexConsumer {
+        long vertices;
+
+        @Override
+        public VertexConsumer vertex(float x, float y, float z) {
+            vertices++;
+            return this;
+        }
+
+        @Override
+        public VertexConsumer color(int red, int green, int blue, int alpha) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer texture(float u, float v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer overlay(int u, int v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer light(int u, int v) {
+            return this;
+        }
+
+        @Override
+        public VertexConsumer normal(float x, float y, float z) {
+            return this;
+        }
+    }
+}